@@ -0,0 +1,76 @@
+package ch.carlopezzotti.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Encodes a 120x100 frame to terminal bytes, written to a channel that discards them, with
+// each CellDisplay and with the Braille encoder it replaced (legacy). Delta mode alternates
+// between two frames so every call has changed cells to emit.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayBenchmark {
+    static final class NullChannel implements GatheringByteChannel {
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long n = 0;
+            for (int i = offset; i < offset + length; i++) n += write(srcs[i]);
+            return n;
+        }
+        @Override public long write(ByteBuffer[] srcs) { return write(srcs, 0, srcs.length); }
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+        @Override public boolean isOpen() { return true; }
+        @Override public void close() {}
+    }
+
+    @Param({"legacy", "braille", "halfblock", "quadrant", "ascii"})
+    public String encoder;
+
+    @Param({"false", "true"})
+    public boolean delta;
+
+    @Param({"0.3"})
+    public double fill;
+
+    private final FrameBuffer[] frames = { new FrameBuffer(120, 100), new FrameBuffer(120, 100) };
+    private Display display;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(7);
+        Engine.Color[] colors = Engine.Color.values();
+        for (FrameBuffer f : frames) {
+            byte[] c = f.colors();
+            for (int i = 0; i < c.length; i++)
+                if (r.nextDouble() < fill) c[i] = FrameBuffer.encode(colors[r.nextInt(colors.length)]);
+        }
+        TerminalOutput out = new TerminalOutput(new NullChannel());
+        switch (encoder) {
+            case "legacy":    display = new LegacyBrailleDisplay(delta, out); break;
+            case "braille":   display = new BrailleDisplay(delta, out); break;
+            case "halfblock": display = new HalfBlockDisplay(delta, out); break;
+            case "quadrant":  display = new QuadrantDisplay(delta, out); break;
+            case "ascii":     display = new AsciiDisplay(delta, out); break;
+            default: throw new IllegalArgumentException(encoder);
+        }
+    }
+
+    @Benchmark
+    public long draw() {
+        display.draw(frames[next ^= 1]);
+        return display.getBytesWritten();
+    }
+}
@@ -0,0 +1,53 @@
+package ch.carlopezzotti.engine;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ch.carlopezzotti.engine.helper.Vector3;
+
+// A whole frame (update, transform, cull, rasterize) of one model spinning in front of the
+// camera, presented to a display that drops the frame.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameBenchmark {
+    static final class NullDisplay implements Display {
+        @Override public void draw(FrameBuffer frame) {}
+        @Override public void init() {}
+        @Override public void clear() {}
+    }
+
+    @Param({"teapot", "cow", "pistol"})
+    public String model;
+
+    @Param({"1"})
+    public int threads;
+
+    private Engine engine;
+    private Node node;
+
+    @Setup
+    public void setup() throws Exception {
+        Mesh mesh = ObjLoader.parse(Path.of("src/main/resources/scene", model + ".obj"));
+        engine = new Engine(120, 100, 30, new NullDisplay(), threads);
+        engine.setDepthTest(true);
+        node = new Node(model);
+        node.setMesh(mesh);
+        node.setLocalScale(new Vector3(1, 1, 1).mul(50 / mesh.boundRadius()));
+        node.setLocalPosition(new Vector3(-mesh.boundX(), -mesh.boundY(), -mesh.boundZ()).mul(50 / mesh.boundRadius()));
+        node.setColor(Engine.Color.GREEN);
+        engine.getScene().addNode(node);
+    }
+
+    @Benchmark
+    public RenderStats renderFrame() throws InterruptedException {
+        node.rotateY(0.01f);
+        engine.renderFrame(33_000_000L);
+        return engine.getStats();
+    }
+}
@@ -0,0 +1,55 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Scalar vs Vector API kernels on the same inputs; forks with jdk.incubator.vector. The
+// vector case needs VectorKernels in the jar: mvn -P jmh,simd package.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class KernelBenchmark {
+    private static final int POINTS = 1024;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private Kernels k;
+    private final float[] matrix = { 0.8f, -0.1f, 0.6f, 1, 0.2f, 0.9f, -0.3f, -2, -0.6f, 0.3f, 0.7f, 40 };
+    private final float[] points = new float[3 * POINTS], screen = new float[4 * POINTS];
+    private final byte[] colors = new byte[120 * 100];
+    private final long[] bits = new long[2];
+
+    @Setup
+    public void setup() {
+        k = kernels.equals("scalar") ? new ScalarKernels() : Kernels.vector();
+        if (k == null) throw new IllegalStateException("VectorKernels not available, build with -P jmh,simd");
+        Random r = new Random(3);
+        for (int i = 0; i < points.length; i++) points[i] = r.nextFloat() * 20 - 10;
+        for (int i = 0; i < colors.length; i++) if (r.nextInt(3) == 0) colors[i] = 2;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void transformProject(Blackhole bh) {
+        k.transformProject(matrix, 60, 60, 50, points, screen, POINTS);
+        bh.consume(screen);
+    }
+
+    // occupancy bits of every row of a 120x100 frame, as CellDisplay computes them
+    @Benchmark
+    public long nonZeroBits() {
+        long acc = 0;
+        for (int y = 0; y < 100; y++) {
+            k.nonZeroBits(colors, y * 120, 120, bits);
+            acc += bits[0] ^ bits[1];
+        }
+        return acc;
+    }
+}
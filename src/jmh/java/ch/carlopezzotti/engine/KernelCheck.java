@@ -0,0 +1,65 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Checks that VectorKernels and ScalarKernels give bit-identical results: projections of
+// random batches (random matrices, counts that leave vector tails, values around the
+// Math.round edge cases) and occupancy bitsets of random rows. Run by mvn -P jmh,simd
+// verify; without VectorKernels in the build it reports the check as skipped.
+public class KernelCheck {
+    private static final float[] EDGES = {
+        0f, -0f, 0.5f, -0.5f, 1.5f, -1.5f, 2.5f, -2.5f, 0.49999997f, -0.49999997f, 0.50000006f, -0.50000006f,
+        0x1p22f + 0.5f, -0x1p22f - 0.5f, 0x1p23f, -0x1p23f, 0x1p23f + 1, 0x1p24f + 2, 0x1p31f, -0x1p31f, 3e9f, -3e9f,
+        Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.MIN_VALUE, -Float.MIN_VALUE,
+        Float.MAX_VALUE, -Float.MAX_VALUE, 0.99999994f, -0.99999994f, -1e-10f
+    };
+
+    public static void main(String[] args) {
+        Kernels vector = Kernels.vector(), scalar = new ScalarKernels();
+        if (vector == null) {
+            System.out.println("kernel check skipped: VectorKernels not built (-P simd) or jdk.incubator.vector missing");
+            return;
+        }
+        int batches = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random r = new Random(25);
+        int projections = 0, bitsets = 0;
+
+        float[] m = new float[12], in = new float[3 * 1024], a = new float[4 * 1024], b = new float[4 * 1024];
+        for (int t = 0; t < batches; t++) {
+            int count = r.nextInt(1024);
+            if (t % 4 == 0) {
+                // identity matrix with depth 2 and fov 2: x and y are rounded unchanged
+                Arrays.fill(m, 0);
+                m[0] = 1; m[5] = 1; m[11] = 2;
+                for (int i = 0; i < 3 * count; i++)
+                    in[i] = r.nextBoolean() ? EDGES[r.nextInt(EDGES.length)] : Float.intBitsToFloat(r.nextInt());
+            } else {
+                for (int i = 0; i < 12; i++) m[i] = r.nextFloat() * 4 - 2;
+                m[11] = r.nextFloat() * 40;
+                for (int i = 0; i < 3 * count; i++) in[i] = r.nextFloat() * 20 - 10;
+            }
+            Arrays.fill(a, 7); Arrays.fill(b, 7);
+            float fov = t % 4 == 0 ? 2 : 60, hw = t % 4 == 0 ? 0 : 60, hh = t % 4 == 0 ? 0 : 50;
+            scalar.transformProject(m, fov, hw, hh, in, a, count);
+            vector.transformProject(m, fov, hw, hh, in, b, count);
+            for (int i = 0; i < a.length; i++)
+                if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i])) { projections++; break; }
+        }
+
+        byte[] row = new byte[600];
+        long[] sb = new long[5], vb = new long[5];
+        for (int t = 0; t < batches * 10; t++) {
+            for (int i = 0; i < row.length; i++) row[i] = r.nextInt(4) == 0 ? (byte) r.nextInt() : 0;
+            int off = r.nextInt(200), len = r.nextInt(300);
+            Arrays.fill(sb, -1); Arrays.fill(vb, -1);
+            scalar.nonZeroBits(row, off, len, sb);
+            vector.nonZeroBits(row, off, len, vb);
+            if (!Arrays.equals(sb, vb)) bitsets++;
+        }
+
+        System.out.println("kernel check (" + vector.name() + "): " + projections + " of " + batches
+            + " projection batches and " + bitsets + " of " + batches * 10 + " bitsets differ");
+        if (projections + bitsets != 0) System.exit(1);
+    }
+}
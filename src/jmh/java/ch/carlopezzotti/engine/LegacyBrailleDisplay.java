@@ -0,0 +1,139 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.Engine.Color;
+
+// The Braille encoder as it was before CellDisplay, kept as the benchmark baseline.
+public class LegacyBrailleDisplay implements Display {
+    private final TerminalOutput out;
+    // delta mode: only cells that differ from the previous frame are rewritten
+    private final boolean delta;
+    private int[] prevCells = new int[0];
+    private long bytesWritten, lastFrameBytes;
+    private long lastEncodeNanos, lastWriteNanos;
+
+    public LegacyBrailleDisplay() {
+        this(false);
+    }
+
+    public LegacyBrailleDisplay(boolean delta) {
+        this(delta, TerminalOutput.stdout());
+    }
+
+    public LegacyBrailleDisplay(boolean delta, TerminalOutput out) {
+        this.delta = delta;
+        this.out = out;
+    }
+
+    // UTF-8 bytes sent to the terminal, in total and for the last frame
+    @Override public long getBytesWritten() { return bytesWritten; }
+    public long getLastFrameBytes() { return lastFrameBytes; }
+    @Override public long getLastEncodeNanos() { return lastEncodeNanos; }
+    @Override public long getLastWriteNanos() { return lastWriteNanos; }
+
+    @Override
+    public void init() {
+        try {
+            String os = System.getProperty("os.name").toLowerCase();
+            if (os.contains("windows")) {
+                new ProcessBuilder("cmd", "/c", "chcp", "65001")
+                        .inheritIO().start().waitFor();
+                System.out.println("→ Usare Windows Terminal con font Segoe UI Emoji");
+            } else {
+                new ProcessBuilder("sh", "-c", "stty raw -echo </dev/tty")
+                        .inheritIO().start().waitFor();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        new ProcessBuilder("sh", "-c", "stty sane </dev/tty")
+                                .inheritIO().start().waitFor();
+                        System.out.print("\u001B[?25h");
+                    } catch (Exception e) {
+                    }
+                }));
+            }
+        } catch (Exception ignored) {
+        }
+        System.out.flush();
+        bytesWritten += out.ascii("\u001B[2J\u001B[H\u001B[?25l").flush();
+    }
+
+    @Override
+    public void clear() {
+        if (delta)
+            return; // every changed cell is addressed explicitly
+        out.prefix("\u001B[H");
+    }
+
+    @Override
+    public void draw(FrameBuffer frame) {
+        long start = System.nanoTime();
+        int w = frame.getWidth(), h = frame.getHeight();
+        byte[] pixels = frame.colors();
+        int cols = (w + 1) / 2, rows = (h + 3) / 4;
+        if (prevCells.length != cols * rows) {
+            prevCells = new int[cols * rows];
+            Arrays.fill(prevCells, -1);
+        }
+
+        byte active = 0;            // colour of the last SGR sequence emitted
+        int cursorRow = -1, cursorCol = -1;
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < cols; cx++) {
+                int cell = cell(pixels, w, h, cx * 2, cy * 4);
+                int cellIdx = cy * cols + cx;
+                if (delta) {
+                    if (prevCells[cellIdx] == cell)
+                        continue;
+                    if (cursorRow != cy || cursorCol != cx)
+                        out.moveTo(cy, cx);
+                }
+                prevCells[cellIdx] = cell;
+
+                byte color = (byte) (cell >>> 16);
+                // a blank cell looks the same in any colour, so it never breaks a run
+                if ((cell & 0xFF) != 0 && color != active) {
+                    out.color(color == 0 ? Color.RESET : FrameBuffer.decode(color));
+                    active = color;
+                }
+                out.braille(cell);
+                cursorRow = cy;
+                cursorCol = cx + 1;
+            }
+            if (!delta)
+                out.ascii('\n');
+        }
+        if (active != 0)
+            out.color(Color.RESET);
+        long encoded = System.nanoTime();
+        lastFrameBytes = out.flush();
+        bytesWritten += lastFrameBytes;
+        lastEncodeNanos = encoded - start;
+        lastWriteNanos = System.nanoTime() - encoded;
+    }
+
+    // dot pattern of the 2x4 block at (bx, by) in the low byte, colour of its first set dot above
+    static int cell(byte[] pixels, int w, int h, int bx, int by) {
+        int code = 0;
+        byte cellColor = 0;
+        for (int py = 0; py < 4; py++) {
+            int row = by + py;
+            if (row >= h)
+                break;
+            for (int px = 0; px < 2; px++) {
+                int col = bx + px;
+                if (col >= w)
+                    continue;
+                int idx = row * w + col;
+                if (pixels[idx] != 0) {
+                    int bit = py * 2 + px;
+                    code |= 1 << bit;
+                    if (cellColor == 0)
+                        cellColor = pixels[idx];
+                }
+            }
+        }
+        return (cellColor & 0xFF) << 16 | code;
+    }
+}
@@ -0,0 +1,79 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ch.carlopezzotti.engine.helper.Transform;
+import ch.carlopezzotti.engine.helper.Vector3;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MathBenchmark {
+    private static final int POINTS = 1024;
+
+    private final Vector3 v = new Vector3(0.3f, -1.2f, 4.5f);
+    private final Transform transform = new Transform(new Vector3(1, 2, 30), new Vector3(0.4f, 1.1f, -0.2f), new Vector3(2, 2, 2));
+    private final float[] matrix = new float[12], other = new float[12], product = new float[12];
+    private final float[] points = new float[3 * POINTS], screen = new float[4 * POINTS];
+    private Engine engine;
+
+    @Setup
+    public void setup() {
+        engine = new Engine(120, 100, 30, null);
+        transform.toMatrix(matrix);
+        new Transform(new Vector3(-3, 0, 5), new Vector3(0, 0.5f, 0), new Vector3(1, 1, 1)).toMatrix(other);
+        Random r = new Random(1);
+        for (int i = 0; i < points.length; i++) points[i] = r.nextFloat() * 20 - 10;
+    }
+
+    @Benchmark
+    public Vector3 vectorRotate() {
+        return v.rotate(0.4f, 1.1f, -0.2f);
+    }
+
+    @Benchmark
+    public Vector3 vectorCrossNormalize() {
+        return v.cross(transform.position).normalize();
+    }
+
+    @Benchmark
+    public Vector3 transformApply() {
+        return transform.apply(v);
+    }
+
+    @Benchmark
+    public Transform transformCombine() {
+        return transform.combine(transform);
+    }
+
+    @Benchmark
+    public float[] transformToMatrix() {
+        transform.toMatrix(matrix);
+        return matrix;
+    }
+
+    @Benchmark
+    public float[] matrixMultiply() {
+        Transform.multiply(matrix, other, product);
+        return product;
+    }
+
+    @Benchmark
+    public int[] projectPoint() {
+        return engine.project(v.x, v.y, v.z);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void projectBatch(Blackhole bh) {
+        engine.project(matrix, points, screen, POINTS);
+        bh.consume(screen);
+    }
+}
@@ -0,0 +1,37 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// parse: text OBJ every time; load: the .meshbin cache written by the first call.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjLoaderBenchmark {
+    @Param({"teapot", "cow", "pistol"})
+    public String model;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws IOException {
+        path = Path.of("src/main/resources/scene", model + ".obj");
+        ObjLoader.load(path);
+    }
+
+    @Benchmark
+    public Mesh parse() throws IOException {
+        return ObjLoader.parse(path);
+    }
+
+    @Benchmark
+    public Mesh load() throws IOException {
+        return ObjLoader.load(path);
+    }
+}
@@ -0,0 +1,52 @@
+package ch.carlopezzotti.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// One triangle per op, half of a size x size square (thin triangles are the "thin" shape).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RasterBenchmark {
+    @Param({"2", "8", "32", "128"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean depth;
+
+    private FrameBuffer frame;
+    private Rasterizer raster;
+    private float z;
+
+    @Setup
+    public void setup() {
+        frame = new FrameBuffer(240, 200);
+        raster = new Rasterizer(frame);
+        raster.setDepthTest(depth);
+        raster.setColor(Engine.Color.RED);
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        frame.clear();
+        frame.clearDepth();
+        z = 1000;
+    }
+
+    @Benchmark
+    public void fillTriangle() {
+        // creep towards the camera so the depth test keeps passing
+        z = z > 2 ? z - 1e-3f : 1000;
+        raster.fillTriangle(4, 4, z, 4 + size, 4, z, 4, 4 + size, z);
+    }
+
+    @Benchmark
+    public void fillThinTriangle() {
+        z = z > 2 ? z - 1e-3f : 1000;
+        raster.fillTriangle(4, 4, z, 4 + size, 5 + size / 2, z, 5, 6, z);
+    }
+}
@@ -0,0 +1,87 @@
+package ch.carlopezzotti.engine;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.helper.Vector3;
+
+// Checks that tile-parallel rendering gives the same frames as the single-threaded path:
+// the demo models placed around the camera, which turns a little every frame, rendered by a
+// 1-thread and a 4-thread engine with and without depth test. Colours and depths must be
+// identical, and the single-threaded colours must match the stored frames in
+// src/test/resources/golden (--record rewrites them). Run by mvn -P jmh verify.
+public class TileCheck {
+    static final Path GOLDEN = Path.of("src/test/resources/golden");
+    static final int W = 80, H = 60, FRAMES = 32;
+
+    static final class Capture implements Display {
+        byte[] colors = new byte[0];
+        float[] depths = new float[0];
+        @Override public void draw(FrameBuffer frame) {
+            colors = frame.colors().clone();
+            depths = frame.depths().clone();
+        }
+        @Override public void init() {}
+        @Override public void clear() {}
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean record = args.length > 0 && args[0].equals("--record");
+        Capture single = new Capture(), tiled = new Capture();
+        Engine a = scene(single, 1), b = scene(tiled, 4);
+        GoldenFrames golden = new GoldenFrames(GOLDEN);
+        FrameBuffer frame = new FrameBuffer(W, H);
+        int tileDiffs = 0, goldenDiffs = 0;
+
+        for (int f = 0; f < FRAMES; f++) {
+            boolean depth = f < FRAMES * 3 / 4;
+            for (Engine e : new Engine[] { a, b }) {
+                e.setDepthTest(depth);
+                e.getCamera().setLocalRotation(new Vector3(0, f * 0.2f, 0));
+                e.renderFrame(33_000_000L);
+            }
+            if (!Arrays.equals(single.colors, tiled.colors) || depth && !sameBits(single.depths, tiled.depths)) {
+                System.out.println("frame " + f + ": tiled and single-threaded buffers differ");
+                tileDiffs++;
+            }
+            System.arraycopy(single.colors, 0, frame.colors(), 0, single.colors.length);
+            if (record) {
+                golden.write(f, frame);
+            } else if (golden.compare(f, frame) != 0) {
+                System.out.println("frame " + f + ": differs from " + golden.path(f));
+                goldenDiffs++;
+            }
+        }
+
+        System.out.println("tile check: " + tileDiffs + " of " + FRAMES + " frames differ between tiled and single-threaded, "
+            + (record ? "golden frames recorded" : goldenDiffs + " differ from the golden frames"));
+        if (tileDiffs + goldenDiffs != 0) System.exit(1);
+    }
+
+    static boolean sameBits(float[] x, float[] y) {
+        if (x.length != y.length) return false;
+        for (int i = 0; i < x.length; i++)
+            if (Float.floatToIntBits(x[i]) != Float.floatToIntBits(y[i])) return false;
+        return true;
+    }
+
+    static Engine scene(Display d, int threads) throws Exception {
+        Engine e = new Engine(W, H, 30, d, threads);
+        String[] models = { "cow", "teapot", "pistol", "cow" };
+        Engine.Color[] colors = { Engine.Color.GREEN, Engine.Color.RED, Engine.Color.CYAN, Engine.Color.YELLOW };
+        for (int i = 0; i < models.length; i++) {
+            Mesh mesh = ObjLoader.parse(Path.of("src/main/resources/scene", models[i] + ".obj"));
+            float s = 20 / mesh.boundRadius();
+            double angle = i * Math.PI / 2;
+            Node n = new Node(models[i] + i);
+            if (i == 3) n.setLod(LodMesh.generate(mesh)); else n.setMesh(mesh);
+            n.setLocalScale(new Vector3(s, s, s));
+            n.setLocalPosition(new Vector3(-mesh.boundX(), -mesh.boundY(), -mesh.boundZ()).mul(s)
+                .add(new Vector3((float) Math.sin(angle) * 60, i * 4 - 6, (float) Math.cos(angle) * 60)));
+            n.setLocalRotation(new Vector3(0, i * 0.7f, 0));
+            n.setColor(colors[i]);
+            e.getScene().addNode(n);
+        }
+        return e;
+    }
+}
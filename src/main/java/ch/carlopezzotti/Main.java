@@ -8,11 +8,11 @@ import ch.carlopezzotti.engine.helper.Transform;
 import javax.swing.SwingUtilities;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class Main implements KeyCaptureWindow.KeyListener {
     private volatile boolean w, a, s, d;
@@ -21,10 +21,15 @@ public class Main implements KeyCaptureWindow.KeyListener {
     private static final double MOVE_SPEED = 10.0;
     private static final double ROT_SPEED  = Math.PI;
     private static Engine engine;
+    private static final AssetManager assets = new AssetManager();
     private static List<Node> enemies;
     private static final Random rnd = new Random();
 
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            runHeadless(args);
+            return;
+        }
         Main app = new Main();
         SwingUtilities.invokeLater(() -> {
             KeyCaptureWindow kcw = new KeyCaptureWindow();
@@ -37,7 +42,10 @@ public class Main implements KeyCaptureWindow.KeyListener {
 
     private void runEngine() throws IOException {
         int width = 120, height = 100, fps = 30;
-        engine = new Engine(width, height, fps, new BrailleDisplay());
+        engine = new Engine(width, height, fps, createDisplay(System.getProperty("tad.display", "braille")));
+        engine.setDepthTest(true);
+        engine.setPipelined(true);
+        engine.setPacer(new FramePacer(fps, 0.5f));
         Camera cam = engine.getCamera();
         cam.setFov(60);
         cam.setDist(10);
@@ -49,34 +57,55 @@ public class Main implements KeyCaptureWindow.KeyListener {
         engine.start();
     }
 
+    // -Dtad.display=braille|halfblock|quadrant|ascii picks the cell encoding for the terminal
+    private static Display createDisplay(String kind) {
+        switch (kind) {
+            case "halfblock": return new HalfBlockDisplay(true);
+            case "quadrant":  return new QuadrantDisplay(true);
+            case "ascii":     return new AsciiDisplay(true);
+            default:          return new BrailleDisplay(true);
+        }
+    }
+
+    // --headless [frames] [--golden dir [--record]]: renders the demo scene offscreen while
+    // the camera turns in place, prints throughput and checks or records golden frames
+    private static void runHeadless(String[] args) throws Exception {
+        int frames = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : 300;
+        OffscreenDisplay display = new OffscreenDisplay();
+        int g = List.of(args).indexOf("--golden");
+        boolean record = List.of(args).contains("--record");
+        if (g >= 0) display.setGolden(new GoldenFrames(Paths.get(args[g + 1])), record);
+
+        rnd.setSeed(42);   // same scene every run
+        engine = new Engine(120, 100, 30, display);
+        engine.setDepthTest(true);
+        Camera cam = engine.getCamera();
+        cam.setFov(60);
+        cam.setDist(10);
+        loadSimpleScene(engine.getScene(), engine);
+
+        HeadlessResult r = engine.runHeadless(frames, (c, i) -> c.setLocalRotation(new Vector3(0, i * 0.02f, 0)));
+        System.out.println(r);
+        if (g >= 0 && !record) {
+            System.out.println(display.getMismatchedFrames() == 0
+                ? "golden: all " + frames + " frames match"
+                : "golden: " + display.getMismatchedFrames() + " frames differ, first " + display.getFirstMismatch());
+            if (display.getMismatchedFrames() != 0) System.exit(1);
+        }
+        System.exit(0);
+    }
+
     private static ArrayList<Node> loadSimpleScene(TreeScene scene, Engine engine) throws IOException {
         String PATH = "src/main/resources/scene/";
         String[] OBJ = { "cow.obj", "pistol.obj","newscene.obj" };
         ArrayList<Node> list = new ArrayList<>();
 
-        for (String of : OBJ) {
-            List<double[]> vs = new ArrayList<>();
-            List<int[]> fs    = new ArrayList<>();
-            for (String line : Files.readAllLines(Paths.get(PATH + of))) {
-                if (line.startsWith("v ")) {
-                    String[] t = line.split("\\s+");
-                    vs.add(new double[]{
-                        Double.parseDouble(t[1]),
-                        Double.parseDouble(t[2]),
-                        Double.parseDouble(t[3])
-                    });
-                } else if (line.startsWith("f ")) {
-                    String[] t = line.split("\\s+");
-                    fs.add(new int[]{
-                        Integer.parseInt(t[1].split("/")[0]) - 1,
-                        Integer.parseInt(t[2].split("/")[0]) - 1,
-                        Integer.parseInt(t[3].split("/")[0]) - 1
-                    });
-                }
-            }
-            Node n = new Node(of.replace(".obj",""));
-            n.setVertices(vs);
-            n.setFaces(fs);
+        // load all models concurrently, then wait for them
+        List<CompletableFuture<Mesh>> meshes = new ArrayList<>();
+        for (String of : OBJ) meshes.add(assets.loadMesh(Paths.get(PATH + of)));
+        for (int i = 0; i < OBJ.length; i++) {
+            Node n = new Node(OBJ[i].replace(".obj",""));
+            n.setMesh(meshes.get(i).join());
             list.add(n);
         }
 
@@ -84,6 +113,8 @@ public class Main implements KeyCaptureWindow.KeyListener {
         Node cow = list.get(0);
         cow.setLocalPosition(randomPos());
         cow.setColor(Engine.Color.RED);
+        cow.setBackfaceCulling(true);
+        cow.setLod(LodMesh.generate(cow.getMesh()));
         scene.addNode(cow);
         // auto‐wander
         cow.setLocalRotation(new Vector3((float)Math.PI,0, 0));
@@ -148,7 +179,7 @@ public class Main implements KeyCaptureWindow.KeyListener {
             case KeyEvent.VK_D: d=true; break;
             case KeyEvent.VK_LEFT:  left=true; break;
             case KeyEvent.VK_RIGHT: rightt=true; break;
-            case KeyEvent.VK_SPACE: relocateNearestRight(); break;
+            case KeyEvent.VK_SPACE: engine.getScene().post(this::relocateNearestRight); break;
         }
     }
 
@@ -161,18 +192,8 @@ public class Main implements KeyCaptureWindow.KeyListener {
             .rotateY((float)ct.rotation.y)
             .rotateX((float)ct.rotation.x);
 
-        Node best = null;
-        double bestDist = Double.POSITIVE_INFINITY;
-        for (Node enemy : enemies) {
-            Vector3 epos = enemy.getGlobalTransform().position;
-            Vector3 diff = epos.sub(camPos);
-            if (diff.dot(camRight) <= 0) continue;
-            double d2 = diff.dot(diff);
-            if (d2 < bestDist) {
-                bestDist = d2;
-                best = enemy;
-            }
-        }
+        Node best = engine.getScene().nearest(camPos,
+            n -> enemies.contains(n) && n.getGlobalTransform().position.sub(camPos).dot(camRight) > 0);
         if (best != null) {
             best.setLocalPosition(randomPos());
             System.out.println("Mucca uccisa");
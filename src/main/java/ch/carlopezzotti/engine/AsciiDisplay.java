@@ -0,0 +1,16 @@
+package ch.carlopezzotti.engine;
+
+// 2x4 pixels per cell as an ASCII density ramp, for terminals without Unicode
+public class AsciiDisplay extends CellDisplay {
+    public AsciiDisplay() {
+        this(false);
+    }
+
+    public AsciiDisplay(boolean delta) {
+        this(delta, TerminalOutput.stdout());
+    }
+
+    public AsciiDisplay(boolean delta, TerminalOutput out) {
+        super(CellGlyphs.ASCII_RAMP, delta, out);
+    }
+}
@@ -0,0 +1,105 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Loads meshes asynchronously and interns them by path, so every Node asking for the same
+// file shares one immutable Mesh. Loaded meshes are kept in an LRU bounded by total size;
+// an evicted mesh stays reachable through a weak reference while nodes still use it.
+public class AssetManager {
+    private static final class Entry {
+        final CompletableFuture<Mesh> future;
+        long size;  // 0 until the mesh is loaded and counted
+
+        Entry(CompletableFuture<Mesh> future) { this.future = future; }
+    }
+
+    private final Executor executor;
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Entry> meshes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, WeakReference<Mesh>> evicted = new HashMap<>();
+    private long bytes;
+
+    public AssetManager() {
+        this(ForkJoinPool.commonPool(), 64L << 20);
+    }
+
+    public AssetManager(Executor executor, long maxBytes) {
+        this.executor = executor;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized CompletableFuture<Mesh> loadMesh(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        Entry e = meshes.get(key);
+        if (e != null) return e.future;
+
+        WeakReference<Mesh> ref = evicted.remove(key);
+        Mesh alive = ref != null ? ref.get() : null;
+        if (alive != null) {
+            e = new Entry(CompletableFuture.completedFuture(alive));
+            meshes.put(key, e);
+            loaded(e, alive);
+            return e.future;
+        }
+
+        Entry entry = new Entry(CompletableFuture.supplyAsync(() -> {
+            try {
+                return ObjLoader.load(key);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, executor));
+        meshes.put(key, entry);
+        entry.future.whenComplete((m, err) -> {
+            synchronized (this) {
+                if (meshes.get(key) != entry) return;
+                if (err != null) meshes.remove(key);
+                else loaded(entry, m);
+            }
+        });
+        return entry.future;
+    }
+
+    // the mesh plus its simplified levels, generated on the loader executor; not interned
+    public CompletableFuture<LodMesh> loadLod(Path path) {
+        return loadMesh(path).thenApplyAsync(LodMesh::generate, executor);
+    }
+
+    public synchronized void evictAll() {
+        for (Map.Entry<Path, Entry> e : meshes.entrySet()) retire(e.getKey(), e.getValue());
+        meshes.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() { return meshes.size(); }
+    public synchronized long getBytes() { return bytes; }
+
+    private void loaded(Entry entry, Mesh m) {
+        entry.size = 4L * (m.positions().length + m.indices().length);
+        bytes += entry.size;
+        // evict least recently used loaded meshes, never the one just added
+        Iterator<Map.Entry<Path, Entry>> it = meshes.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Entry> e = it.next();
+            if (e.getValue() == entry || e.getValue().size == 0) continue;
+            bytes -= e.getValue().size;
+            retire(e.getKey(), e.getValue());
+            it.remove();
+        }
+    }
+
+    private void retire(Path key, Entry e) {
+        if (e.size > 0) evicted.put(key, new WeakReference<>(e.future.join()));
+        evicted.values().removeIf(r -> r.get() == null);
+    }
+}
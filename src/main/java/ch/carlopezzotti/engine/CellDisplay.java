@@ -0,0 +1,176 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.Engine.Color;
+
+// Terminal display that turns every block of pixels into one character cell. For each row of
+// cells the core builds one occupancy bitset per pixel row (Kernels.nonZeroBits, SIMD when
+// available), cuts each cell's bitmask out of them and takes the colours of its first and
+// last set pixel; the glyph for the mask comes from a pre-encoded table. The subclasses only
+// choose the glyph set.
+public abstract class CellDisplay implements Display {
+    private final CellGlyphs glyphs;
+    private final int cellW, cellH;
+    private final TerminalOutput out;
+    // delta mode: only cells that differ from the previous frame are rewritten
+    private final boolean delta;
+    private int[] prevCells = new int[0];
+    private long[][] rowBits = new long[0][];
+    private long bytesWritten, lastFrameBytes;
+    private long lastEncodeNanos, lastWriteNanos;
+
+    CellDisplay(CellGlyphs glyphs, boolean delta, TerminalOutput out) {
+        this.glyphs = glyphs;
+        this.cellW = glyphs.cellW;
+        this.cellH = glyphs.cellH;
+        this.delta = delta;
+        this.out = out;
+    }
+
+    // UTF-8 bytes sent to the terminal, in total and for the last frame
+    @Override public long getBytesWritten() { return bytesWritten; }
+    public long getLastFrameBytes() { return lastFrameBytes; }
+    @Override public long getLastEncodeNanos() { return lastEncodeNanos; }
+    @Override public long getLastWriteNanos() { return lastWriteNanos; }
+
+    @Override
+    public void init() {
+        try {
+            String os = System.getProperty("os.name").toLowerCase();
+            if (os.contains("windows")) {
+                new ProcessBuilder("cmd", "/c", "chcp", "65001")
+                        .inheritIO().start().waitFor();
+                System.out.println("→ Usare Windows Terminal con font Segoe UI Emoji");
+            } else {
+                new ProcessBuilder("sh", "-c", "stty raw -echo </dev/tty")
+                        .inheritIO().start().waitFor();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        new ProcessBuilder("sh", "-c", "stty sane </dev/tty")
+                                .inheritIO().start().waitFor();
+                        System.out.print("\u001B[?25h");
+                    } catch (Exception e) {
+                    }
+                }));
+            }
+        } catch (Exception ignored) {
+        }
+        System.out.flush();
+        bytesWritten += out.ascii("\u001B[2J\u001B[H\u001B[?25l").flush();
+    }
+
+    @Override
+    public void clear() {
+        if (delta)
+            return; // every changed cell is addressed explicitly
+        out.prefix("\u001B[H");
+    }
+
+    @Override
+    public void draw(FrameBuffer frame) {
+        long start = System.nanoTime();
+        int w = frame.getWidth(), h = frame.getHeight();
+        byte[] pixels = frame.colors();
+        int cols = (w + cellW - 1) / cellW, rows = (h + cellH - 1) / cellH;
+        if (prevCells.length != cols * rows) {
+            prevCells = new int[cols * rows];
+            Arrays.fill(prevCells, -1);
+        }
+        int words = (w + 63) >>> 6;
+        if (rowBits.length != cellH || rowBits[0].length != words) rowBits = new long[cellH][words];
+        Kernels kernels = Kernels.ACTIVE;
+
+        byte[][] utf8 = glyphs.utf8;
+        int fg = 0, bg = 0;         // colours of the last SGR sequences emitted
+        int cursorRow = -1, cursorCol = -1;
+        for (int cy = 0; cy < rows; cy++) {
+            int y = cy * cellH;
+            for (int r = 0; r < cellH; r++) {
+                if (y + r < h) kernels.nonZeroBits(pixels, (y + r) * w, w, rowBits[r]);
+                else Arrays.fill(rowBits[r], 0L);
+            }
+            for (int cx = 0; cx < cols; cx++) {
+                int x = cx * cellW;
+                int cell = cellFromMask(pixels, w, x, y, mask(x));
+                int cellIdx = cy * cols + cx;
+                if (delta) {
+                    if (prevCells[cellIdx] == cell)
+                        continue;
+                    if (cursorRow != cy || cursorCol != cx)
+                        out.moveTo(cy, cx);
+                }
+                prevCells[cellIdx] = cell;
+
+                int mask = cell & 0xFFFF;
+                // a blank cell looks the same in any foreground colour, so it never breaks a run
+                if (mask != 0) {
+                    int c = cell >>> 16 & 0xFF;
+                    if (c != fg) {
+                        out.color(FrameBuffer.decode((byte) c));
+                        fg = c;
+                    }
+                }
+                int b = cell >>> 24;
+                if (b != bg) {
+                    out.background(FrameBuffer.decode((byte) b));
+                    bg = b;
+                }
+                out.glyph(utf8[mask]);
+                cursorRow = cy;
+                cursorCol = cx + 1;
+            }
+            if (!delta)
+                out.ascii('\n');
+        }
+        if (fg != 0 || bg != 0)
+            out.color(Color.RESET);
+        long encoded = System.nanoTime();
+        lastFrameBytes = out.flush();
+        bytesWritten += lastFrameBytes;
+        lastEncodeNanos = encoded - start;
+        lastWriteNanos = System.nanoTime() - encoded;
+    }
+
+    // mask of the cell at x from the row occupancy bitsets of its cell row
+    private int mask(int x) {
+        int mask = 0, lowBits = (1 << cellW) - 1;
+        for (int r = 0; r < cellH; r++)
+            mask |= ((int) (rowBits[r][x >>> 6] >>> (x & 63)) & lowBits) << (r * cellW);
+        return mask;
+    }
+
+    // colours come from the first and last set pixel in row-major order: the lowest and
+    // highest set bit of the mask
+    private int cellFromMask(byte[] pixels, int w, int x, int y, int mask) {
+        if (mask == 0) return 0;
+        int b = Integer.numberOfTrailingZeros(mask);
+        int first = pixels[(y + b / cellW) * w + x + b % cellW] & 0xFF, last = 0;
+        if (glyphs.background && mask == glyphs.fullMask) {
+            b = 31 - Integer.numberOfLeadingZeros(mask);
+            last = pixels[(y + b / cellW) * w + x + b % cellW] & 0xFF;
+        }
+        return last << 24 | first << 16 | mask;
+    }
+
+    // mask in the low 16 bits, foreground colour code above, background code (or 0) on top
+    static int cell(CellGlyphs g, byte[] pixels, int w, int h, int x, int y) {
+        int mask = 0, first = 0, last = 0;
+        for (int r = 0; r < g.cellH && y + r < h; r++) {
+            for (int c = 0; c < g.cellW && x + c < w; c++) {
+                int p = pixels[(y + r) * w + x + c] & 0xFF;
+                if (p == 0) continue;
+                mask |= 1 << (r * g.cellW + c);
+                if (first == 0) first = p;
+                last = p;
+            }
+        }
+        return encode(g, mask, first, last);
+    }
+
+    private static int encode(CellGlyphs g, int mask, int first, int last) {
+        if (mask == 0) return 0;
+        int bg = g.background && mask == g.fullMask ? last : 0;
+        return bg << 24 | first << 16 | mask;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.carlopezzotti.engine;
+
+import java.nio.charset.StandardCharsets;
+
+// Glyph set of a CellDisplay: a cell covers cellW x cellH pixels whose occupancy forms a
+// row-major bitmask (bit r * cellW + c), and every mask maps to a pre-encoded UTF-8 glyph.
+final class CellGlyphs {
+    final int cellW, cellH, fullMask;
+    // with background, a full cell is drawn with the first pixel's colour as foreground and
+    // the last pixel's as background (half blocks show two colours per cell)
+    final boolean background;
+    final byte[][] utf8;
+    final String[] text;
+
+    private CellGlyphs(int cellW, int cellH, boolean background, String[] glyphs) {
+        this.cellW = cellW;
+        this.cellH = cellH;
+        this.fullMask = (1 << (cellW * cellH)) - 1;
+        this.background = background;
+        this.text = glyphs;
+        this.utf8 = new byte[glyphs.length][];
+        for (int m = 0; m < glyphs.length; m++) utf8[m] = glyphs[m].getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 2x4 dots; Unicode numbers the dots down the left column, then the right, then row 4
+    static final CellGlyphs BRAILLE;
+    // 1x2: upper / lower half block, two colours per cell
+    static final CellGlyphs HALF_BLOCK = new CellGlyphs(1, 2, true, new String[] {
+        " ", "▀", "▄", "▀"
+    });
+    // 2x2 quadrant blocks
+    static final CellGlyphs QUADRANT = new CellGlyphs(2, 2, false, new String[] {
+        " ",      "▘", "▝", "▀", "▖", "▌", "▞", "▛",
+        "▗", "▚", "▐", "▜", "▄", "▙", "▟", "█"
+    });
+    // 2x4 cells shaded by how many of the 8 pixels are set, plain ASCII
+    static final CellGlyphs ASCII_RAMP;
+
+    static {
+        int[] dot = { 0, 3, 1, 4, 2, 5, 6, 7 };   // row-major bit -> Braille dot bit
+        String[] braille = new String[256], ramp = new String[256];
+        String levels = " .:-=+*#@";
+        for (int m = 0; m < 256; m++) {
+            int bits = 0;
+            for (int b = 0; b < 8; b++) if ((m >> b & 1) != 0) bits |= 1 << dot[b];
+            braille[m] = String.valueOf((char) (0x2800 + bits));
+            ramp[m] = String.valueOf(levels.charAt(Integer.bitCount(m)));
+        }
+        BRAILLE = new CellGlyphs(2, 4, false, braille);
+        ASCII_RAMP = new CellGlyphs(2, 4, false, ramp);
+    }
+}
@@ -1,15 +1,15 @@
 package ch.carlopezzotti.engine;
 
-
-import ch.carlopezzotti.engine.Engine.Color;
-
 public interface  Display {
-    public void draw(int[] pixels, int width2, int height2);
-    public void draw(int[] pixels, int width, int height, Color[] cols);
+    // reads the frame's buffers in place; called on the engine thread
+    public void draw(FrameBuffer frame);
     public void init();
     public default void clear() {
-        System.out.print("\u001B[H\u001B[2J"); 
-        System.out.print("\u001B[?25l");
-        System.out.flush();
+        TerminalOutput.stdout().ascii("\u001B[H\u001B[2J\u001B[?25l").flush();
     }
+    // total bytes sent to the terminal so far
+    public default long getBytesWritten() { return 0; }
+    // last draw() split into encoding and writing, -1 when the display does not track it
+    public default long getLastEncodeNanos() { return -1; }
+    public default long getLastWriteNanos() { return -1; }
 }
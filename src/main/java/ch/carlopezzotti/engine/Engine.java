@@ -2,6 +2,8 @@
 package ch.carlopezzotti.engine;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 import ch.carlopezzotti.engine.helper.Transform;
@@ -39,30 +41,70 @@ public class Engine {
                 }
             }
         }
+        // depth-aware variant (z = view depth per corner); plain fill unless overridden
+        default void fillTriangle(int x1,int y1,float z1,int x2,int y2,float z2,int x3,int y3,float z3){
+            fillTriangle(x1,y1,x2,y2,x3,y3);
+        }
     }
 
     public interface RenderCallback {
         void render(Graphics g, int w, int h, double delta);
     }
 
+    // places the camera for frame i of a scripted (headless) run
+    public interface CameraPath {
+        void place(Camera camera, int frame);
+    }
+
     private final int width, height, fps;
     private final Display display;
-    private final Color[][] colorBuffer;
+    private FrameBuffer frame;          // buffer being rendered into
+    private Presenter presenter;        // null when presenting on the engine thread
+    private final Rasterizer raster;
+    private final TileRenderer tiles;   // null when rendering on the engine thread only
+    private boolean depthTest;
     private final TreeScene scene;
     private final Camera camera;
+    private final float[] view = new float[12], modelView = new float[12];
+    private float viewFov, halfW, halfH;
+    // side planes of the frustum: |x| <= kx*z, |y| <= ky*z, with unit-normal factors nx, ny
+    private float frustumKx, frustumKy, frustumNx, frustumNy;
+    private final RenderStats frameStats = new RenderStats(), lastStats = new RenderStats();
+    private FrameProfiler profiler;     // null when profiling is off
+    private FramePacer pacer;           // null: fixed sleep per frame
+    private ExecutorService pool;       // tile workers, null when single-threaded
+    // lowered internal resolution: the scene renders into lowFrame and is upscaled to frame
+    private int renderW, renderH;
+    private FrameBuffer lowFrame;
+    private Rasterizer lowRaster;
+    private TileRenderer lowTiles;
+    private int[] upscaleX, upscaleY;
+    private long retiredPixels;         // colour writes of discarded low-resolution rasterizers
     private RenderCallback renderCallback;
     private Consumer<Character> keyCallback;
 
     public Engine(int width, int height, int fps, Display display) {
+        this(width, height, fps, display, 1);
+    }
+
+    // renderThreads > 1 rasterizes the scene in screen tiles on a pool of that many threads
+    public Engine(int width, int height, int fps, Display display, int renderThreads) {
         this.width  = width;
         this.height = height;
         this.fps    = fps;
         this.display= display;
-        this.colorBuffer = new Color[height][width];
+        this.frame  = new FrameBuffer(width, height);
+        this.raster = new Rasterizer(frame);
+        this.pool   = renderThreads > 1 ? new ForkJoinPool(renderThreads) : null;
+        this.tiles  = pool != null ? new TileRenderer(raster, frame, pool) : null;
+        this.renderW = width;
+        this.renderH = height;
         this.scene  = new TreeScene();
         this.camera = new Camera("camera", 60.0, 100.0); // dist positivo
         this.camera.setLocalPosition(new Vector3(0, 0, 0));
         scene.addNode(camera);
+        updateView();
+        if (Boolean.getBoolean("tad.profile")) setProfiling(true);
     }
 
     public TreeScene getScene()       { return scene; }
@@ -70,6 +112,52 @@ public class Engine {
     public void onRender(RenderCallback cb) { this.renderCallback = cb; }
     public void onKey(Consumer<Character> cb) { this.keyCallback = cb; }
 
+    // per-pixel depth test instead of sorting nodes back to front
+    public void setDepthTest(boolean on) {
+        depthTest = on;
+        raster.setDepthTest(on);
+        if (lowRaster != null) lowRaster.setDepthTest(on);
+    }
+    public boolean isDepthTest() { return depthTest; }
+
+    // Present frames on a separate thread while the next one renders; stale frames are
+    // dropped when the terminal falls behind. Must be called before start().
+    public void setPipelined(boolean on) {
+        presenter = on ? new Presenter(display, width, height) : null;
+        if (presenter != null) presenter.profiler = profiler;
+    }
+
+    // Per-stage timing histograms and pipeline counters, also published as the JMX bean
+    // ch.carlopezzotti.engine:type=FrameProfiler and as JFR events. Off unless -Dtad.profile=true;
+    // when off the frame loop does no timing at all. Call before start() or on the engine thread.
+    public void setProfiling(boolean on) {
+        if (on == (profiler != null)) return;
+        if (on) {
+            profiler = new FrameProfiler();
+            profiler.register();
+        } else {
+            profiler.unregister();
+            profiler = null;
+        }
+        if (presenter != null) presenter.profiler = profiler;
+    }
+
+    public FrameProfiler getProfiler() { return profiler; }
+
+    // Deadline-based pacing with frame skipping and dynamic resolution instead of a fixed
+    // sleep; null restores the fixed sleep. Must be called before start().
+    public void setPacer(FramePacer p) { pacer = p; }
+    public FramePacer getPacer() { return pacer; }
+
+    // fraction of width x height the scene is currently rasterized at
+    public float getRenderScale() { return renderW / (float) width; }
+
+    public long getFramesDropped() { return presenter != null ? presenter.getFramesDropped() : 0; }
+
+    // counters of the last completed frame
+    public RenderStats getStats() { return lastStats; }
+    RenderStats frameStats() { return frameStats; }
+
     public void start() {
         new Thread(this::runLoop, "Engine-Thread").start();
     }
@@ -77,55 +165,25 @@ public class Engine {
     private void runLoop() {
         try {
             display.init();
+            if(presenter!=null) presenter.start();
             startInputThread();
             long last = System.nanoTime();
             long period = 1_000_000_000L / fps;
+            FramePacer p = pacer;
+            if(p!=null) p.start(last);
 
             while (true) {
                 long now = System.nanoTime();
-                double delta = (now - last) / 1e9;
+                if(p!=null) setRenderScale(p.getScale());
+                renderFrame(now - last);
                 last = now;
 
-                // clear
-                for(int y=0;y<height;y++) for(int x=0;x<width;x++) colorBuffer[y][x]=null;
-
-                Graphics g = new Graphics() {
-                    private Color current = Color.WHITE;
-                    @Override public void setColor(Color c) { current=c; System.out.print(c); }
-                    @Override public void setPixel(int x,int y){
-                        if(x>=0&&x<width&&y>=0&&y<height) colorBuffer[y][x]=current;
-                    }
-                    @Override public void drawLine(int x1,int y1,int x2,int y2){
-                        int dx=Math.abs(x2-x1), sx=x1<x2?1:-1;
-                        int dy=-Math.abs(y2-y1), sy=y1<y2?1:-1;
-                        int err=dx+dy;
-                        while(true){
-                            setPixel(x1,y1);
-                            if(x1==x2&&y1==y2) break;
-                            int e2=2*err;
-                            if(e2>=dy){err+=dy; x1+=sx;}
-                            if(e2<=dx){err+=dx; y1+=sy;}
-                        }
-                    }
-                };
-
-                scene.renderAll(this,g,width,height);
-                if(renderCallback!=null) renderCallback.render(g,width,height,delta);
-
-                int[] flat = new int[width*height];
-                Color[] cols = new Color[width*height];
-                int idx=0;
-                for(int y=0;y<height;y++){
-                    for(int x=0;x<width;x++){
-                        flat[idx] = (colorBuffer[y][x]!=null?1:0);
-                        cols[idx] = colorBuffer[y][x];
-                        idx++;
-                    }
-                }
-                display.clear();
-                display.draw(flat,width,height,cols);
-
                 long elapsed=System.nanoTime()-now;
+                if(p!=null){
+                    p.frameDone(elapsed);
+                    p.await();
+                    continue;
+                }
                 long sleep=period-elapsed;
                 if(sleep>0) Thread.sleep(sleep/1_000_000,(int)(sleep%1_000_000));
             }
@@ -134,6 +192,115 @@ public class Engine {
         }
     }
 
+    // Runs one frame on the calling thread: scene edits and updates for dtNanos of engine
+    // time, then render and present. start() calls it in a loop; benchmarks and headless
+    // runs call it directly (after display.init()).
+    public void renderFrame(long dtNanos) throws InterruptedException {
+        FrameProfiler p = profiler;
+        FrameEvent ev = p != null ? new FrameEvent() : null;
+        if(ev!=null) ev.begin();
+        long t0 = p != null ? System.nanoTime() : 0;
+        scene.applyPending();
+        scene.update(dtNanos);
+        long t1 = p != null ? System.nanoTime() : 0;
+        updateView();
+        frameStats.reset();
+
+        FrameBuffer target = lowFrame != null ? lowFrame : frame;
+        Rasterizer r = lowFrame != null ? lowRaster : raster;
+        TileRenderer t = lowFrame != null ? lowTiles : tiles;
+        target.clear();
+        if(depthTest) target.clearDepth();
+        long t2 = p != null ? System.nanoTime() : 0;
+
+        if(t!=null){
+            scene.renderAll(this,t,renderW,renderH);
+            t.flush();
+        } else {
+            scene.renderAll(this,r,renderW,renderH);
+        }
+        if(renderCallback!=null) renderCallback.render(r,renderW,renderH,dtNanos/1e9);
+        if(lowFrame!=null) upscale(lowFrame, frame);
+        lastStats.copyFrom(frameStats);
+        long t3 = p != null ? System.nanoTime() : 0;
+
+        if(presenter!=null){
+            frame = presenter.publish(frame);
+            raster.setTarget(frame);
+            if(tiles!=null) tiles.setTarget(frame);
+        } else {
+            display.clear();
+            display.draw(frame);
+        }
+        if(p!=null){
+            long t4 = System.nanoTime();
+            if(presenter==null) p.present(display, t4-t3);
+            long pixels = retiredPixels + raster.getPixelsWritten() + (tiles!=null ? tiles.getPixelsWritten() : 0)
+                        + (lowRaster!=null ? lowRaster.getPixelsWritten() : 0)
+                        + (lowTiles!=null ? lowTiles.getPixelsWritten() : 0);
+            p.endFrame(ev, t1-t0, t2-t1, t3-t2, t4-t0, frameStats, pixels, getFramesDropped());
+        }
+    }
+
+    // Rasterizes at scale x the display size from the next frame on (clamped to (0, 1]);
+    // called by the frame loop with the pacer's scale.
+    void setRenderScale(float scale) {
+        int w = Math.max(1, Math.min(width,  Math.round(width  * scale)));
+        int h = Math.max(1, Math.min(height, Math.round(height * scale)));
+        if (w == renderW && h == renderH) return;
+        if (lowRaster != null) retiredPixels += lowRaster.getPixelsWritten();
+        if (lowTiles != null) retiredPixels += lowTiles.getPixelsWritten();
+        renderW = w;
+        renderH = h;
+        if (w == width && h == height) {
+            lowFrame = null; lowRaster = null; lowTiles = null;
+            return;
+        }
+        lowFrame  = new FrameBuffer(w, h);
+        lowRaster = new Rasterizer(lowFrame);
+        lowRaster.setDepthTest(depthTest);
+        lowTiles  = pool != null ? new TileRenderer(lowRaster, lowFrame, pool) : null;
+        // source column / row of every display pixel, nearest neighbour
+        upscaleX = new int[width];
+        upscaleY = new int[height];
+        for (int x = 0; x < width; x++)  upscaleX[x] = x * w / width;
+        for (int y = 0; y < height; y++) upscaleY[y] = y * h / height * w;
+    }
+
+    private void upscale(FrameBuffer src, FrameBuffer dst) {
+        byte[] s = src.colors(), d = dst.colors();
+        int[] xs = upscaleX;
+        for (int y = 0, o = 0; y < height; y++) {
+            int row = upscaleY[y];
+            if (y > 0 && row == upscaleY[y - 1]) {
+                System.arraycopy(d, o - width, d, o, width);
+                o += width;
+                continue;
+            }
+            for (int x = 0; x < width; x++) d[o++] = s[row + xs[x]];
+        }
+    }
+
+    // Renders frames back to back on the calling thread, with no pacing and no input, moving
+    // the camera along path before each frame. Updates advance by a fixed 1/fps per frame,
+    // so a run is repeatable (e.g. with an OffscreenDisplay checking golden frames).
+    public HeadlessResult runHeadless(int frames, CameraPath path) throws InterruptedException {
+        if (presenter != null)
+            throw new IllegalStateException("headless runs present on the calling thread; disable pipelining");
+        display.init();
+        long dt = 1_000_000_000L / fps, triangles = 0;
+        LatencyHistogram times = new LatencyHistogram();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            long t = System.nanoTime();
+            if (path != null) path.place(camera, i);
+            renderFrame(dt);
+            times.record(System.nanoTime() - t);
+            triangles += lastStats.facesDrawn;
+        }
+        return new HeadlessResult(frames, System.nanoTime() - start, times, triangles);
+    }
+
     private void startInputThread() {
         new Thread(() -> {
             try {
@@ -146,34 +313,91 @@ public class Engine {
         },"Engine-Input").start();
     }
 
-    public int[] project(double wx, double wy, double wz) {
+    // Caches the camera as a 3x4 world->view matrix (near distance folded into z) plus
+    // the fov scale, so projecting a vertex needs no trig. Called at the start of each frame.
+    public void updateView() {
         Transform camT = camera.getGlobalTransform();
         Vector3 cp = camT.position;
         Vector3 cr = camT.rotation;
+        double cy = Math.cos(-cr.y), sy = Math.sin(-cr.y);
+        double cx = Math.cos(-cr.x), sx = Math.sin(-cr.x);
+        double cz = Math.cos(-cr.z), sz = Math.sin(-cr.z);
+
+        // yaw, then pitch, then roll
+        float[] m = view;
+        m[0] = (float)(cz*cy - sz*sy*sx); m[1] = (float)(-sz*cx); m[2]  = (float)(cz*sy + sz*cy*sx);
+        m[4] = (float)(sz*cy + cz*sy*sx); m[5] = (float)(cz*cx);  m[6]  = (float)(sz*sy - cz*cy*sx);
+        m[8] = (float)(-sy*cx);           m[9] = (float)sx;       m[10] = (float)(cy*cx);
+        for (int r = 0; r < 12; r += 4)
+            m[r+3] = -(m[r]*cp.x + m[r+1]*cp.y + m[r+2]*cp.z);
+        m[11] += (float)camera.getDist();
+
+        viewFov = (float)camera.getFov() * renderW / width;
+        halfW = renderW / 2f;
+        halfH = renderH / 2f;
+        frustumKx = halfW / viewFov;
+        frustumKy = halfH / viewFov;
+        frustumNx = (float)(1 / Math.sqrt(1 + frustumKx*frustumKx));
+        frustumNy = (float)(1 / Math.sqrt(1 + frustumKy*frustumKy));
+    }
+
+    // false if the world-space sphere lies entirely outside the view frustum
+    public boolean isSphereVisible(float wx, float wy, float wz, float radius) {
+        float[] m = view;
+        float vx = m[0]*wx + m[1]*wy + m[2]*wz  + m[3];
+        float vy = m[4]*wx + m[5]*wy + m[6]*wz  + m[7];
+        float zp = m[8]*wx + m[9]*wy + m[10]*wz + m[11];
+        if (zp + radius <= 1f) return false;   // behind the near plane
+        if (( vx - frustumKx*zp)*frustumNx > radius) return false;
+        if ((-vx - frustumKx*zp)*frustumNx > radius) return false;
+        if (( vy - frustumKy*zp)*frustumNy > radius) return false;
+        if ((-vy - frustumKy*zp)*frustumNy > radius) return false;
+        return true;
+    }
+
+    // approximate on-screen radius in pixels of a world-space sphere, MAX_VALUE when it
+    // reaches the near plane
+    public float projectedRadius(float wx, float wy, float wz, float radius) {
+        float[] m = view;
+        float zp = m[8]*wx + m[9]*wy + m[10]*wz + m[11];
+        if (zp - radius <= 1f) return Float.MAX_VALUE;
+        return radius * viewFov / zp;
+    }
+
+    public int[] project(double wx, double wy, double wz) {
+        float[] out = new float[3];
+        if (!project(wx, wy, wz, out, 0)) return null;
+        return new int[]{ (int)out[0], (int)out[1] };
+    }
+
+    // writes (sx, sy, depth) at out[off..off+2]; returns false if the point is clipped
+    public boolean project(double wx, double wy, double wz, float[] out, int off) {
+        float[] m = view;
+        float x = (float)wx, y = (float)wy, z = (float)wz;
+        float vx = m[0]*x + m[1]*y + m[2]*z  + m[3];
+        float vy = m[4]*x + m[5]*y + m[6]*z  + m[7];
+        float zp = m[8]*x + m[9]*y + m[10]*z + m[11];
+        if (zp <= 1f) return false;            // near‐plane clipping
+
+        float scale = viewFov / zp;
+        out[off]   = Math.round(vx*scale + halfW);
+        out[off+1] = Math.round(vy*scale + halfH);
+        out[off+2] = zp;
+        return true;
+    }
+
+    // Projects count world-space points (xyz in in) to out as (sx, sy, depth, clipped) per point.
+    public void project(float[] in, float[] out, int count) {
+        transformProject(view, in, out, count);
+    }
+
+    // Same as project(in, out, count) for points in the space of a 3x4 model matrix.
+    public void project(float[] model, float[] in, float[] out, int count) {
+        Transform.multiply(view, model, modelView);
+        transformProject(modelView, in, out, count);
+    }
 
-        double dx = wx - cp.x,
-               dy = wy - cp.y,
-               dz = wz - cp.z;
-        double cy = Math.cos(-cr.y),
-               sy = Math.sin(-cr.y);
-        double cpitch = Math.cos(-cr.x),
-               sp     = Math.sin(-cr.x);
-        double crl = Math.cos(-cr.z),
-               sr  = Math.sin(-cr.z);
-
-        double x1 = dx*cy + dz*sy;
-        double z1 = -dx*sy + dz*cy;
-        double y1 = dy*cpitch - z1*sp;
-        double z2 = dy*sp + z1*cpitch;         // CLIP if behind camera
-
-        double x2 = x1*crl - y1*sr;
-        double y2 = x1*sr + y1*crl;
-        double zp = z2 + camera.getDist();
-        if (zp <= 1.0) return null;            // near‐plane clipping
-
-        double scale = camera.getFov() / zp;
-        int sx = (int)Math.round(x2*scale + width/2.0);
-        int syy = (int)Math.round(y2*scale + height/2.0);
-        return new int[]{ sx, syy };
+    private void transformProject(float[] m, float[] in, float[] out, int count) {
+        Kernels.ACTIVE.transformProject(m, viewFov, halfW, halfH, in, out, count);
     }
 }
@@ -0,0 +1,36 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.Engine.Color;
+
+// Flat, row-major colour and depth buffers for one frame. A colour entry is 0 for an empty
+// pixel, otherwise the Color ordinal + 1; depth holds 1/z (0 = empty). Displays read the
+// arrays directly.
+public class FrameBuffer {
+    private static final Color[] COLORS = Color.values();
+
+    private final int width, height;
+    private final byte[] color;
+    private final float[] depth;
+
+    public FrameBuffer(int width, int height) {
+        this.width  = width;
+        this.height = height;
+        this.color  = new byte[width * height];
+        this.depth  = new float[width * height];
+    }
+
+    public int getWidth()  { return width; }
+    public int getHeight() { return height; }
+    public byte[] colors() { return color; }
+    public float[] depths() { return depth; }
+
+    public Color getColor(int x, int y) { return decode(color[y * width + x]); }
+
+    public void clear() { Arrays.fill(color, (byte)0); }
+    public void clearDepth() { Arrays.fill(depth, 0f); }
+
+    public static byte encode(Color c) { return c == null ? 0 : (byte)(c.ordinal() + 1); }
+    public static Color decode(byte code) { return code == 0 ? null : COLORS[code - 1]; }
+}
@@ -0,0 +1,26 @@
+package ch.carlopezzotti.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event per rendered frame; its duration spans the whole frame on the engine thread
+@Name("ch.carlopezzotti.engine.Frame")
+@Label("Frame")
+@Category("TAD")
+@Description("One frame of the engine loop, split by stage")
+@StackTrace(false)
+class FrameEvent extends jdk.jfr.Event {
+    @Label("Update") @Timespan long update;
+    @Label("Clear") @Timespan long clear;
+    @Label("Sort") @Timespan long sort;
+    @Label("Vertex Transform") @Timespan long transform;
+    @Label("Rasterize") @Timespan long raster;
+    @Label("Triangles Submitted") int trianglesSubmitted;
+    @Label("Triangles Culled") int trianglesCulled;
+    @Label("Triangles Drawn") int trianglesDrawn;
+    @Label("Pixels Written") long pixelsWritten;
+}
@@ -0,0 +1,72 @@
+package ch.carlopezzotti.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Frame pacing against absolute deadlines, plus dynamic resolution.
+// Deadlines advance by exactly one period, so sleep overshoot does not accumulate. A frame
+// that finishes late starts the next one at once, and whole periods that were missed are
+// skipped instead of rendered back to back. The render scale drops when the average frame
+// work exceeds the budget and recovers when there is headroom.
+public class FramePacer {
+    private static final long SPIN_NANOS = 500_000;     // busy-wait the last half millisecond
+    private static final float SCALE_STEP = 0.85f;
+    private static final float HIGH_LOAD = 0.9f, LOW_LOAD = 0.6f;   // of the frame budget
+    private static final int HOLD_FRAMES = 15;          // frames between two scale changes
+
+    private final long period;
+    private final float minScale;
+    private volatile boolean spinWait = true;
+    private long deadline;
+    private volatile long framesSkipped;
+    private volatile float scale = 1;
+    private double avgWork;
+    private int hold;
+
+    // minScale 1 keeps the full resolution and only paces
+    public FramePacer(int targetFps, float minScale) {
+        if (targetFps <= 0) throw new IllegalArgumentException("targetFps must be positive");
+        this.period = 1_000_000_000L / targetFps;
+        this.minScale = Math.max(0.05f, Math.min(1, minScale));
+    }
+
+    public long getPeriodNanos() { return period; }
+    public float getMinScale() { return minScale; }
+    public float getScale() { return scale; }
+    public long getFramesSkipped() { return framesSkipped; }
+
+    // sleeping alone can overshoot a deadline by the OS timer slack; spinning costs a core
+    public void setSpinWait(boolean on) { spinWait = on; }
+
+    void start(long now) {
+        deadline = now + period;
+    }
+
+    // adapts the render scale to how long the last frame's work took
+    void frameDone(long workNanos) {
+        avgWork = avgWork == 0 ? workNanos : avgWork * 0.9 + workNanos * 0.1;
+        if (hold > 0) { hold--; return; }
+        if (avgWork > period * HIGH_LOAD && scale > minScale) {
+            scale = Math.max(minScale, scale * SCALE_STEP);
+            hold = HOLD_FRAMES;
+        } else if (avgWork < period * LOW_LOAD && scale < 1) {
+            scale = Math.min(1, scale / SCALE_STEP);
+            hold = HOLD_FRAMES;
+        }
+    }
+
+    // waits for the next frame's deadline
+    void await() {
+        long late = System.nanoTime() - deadline;
+        if (late >= 0) {
+            long missed = late / period;
+            framesSkipped += missed;
+            deadline += (missed + 1) * period;
+            return;
+        }
+        long wait;
+        long margin = spinWait ? SPIN_NANOS : 0;
+        while ((wait = deadline - System.nanoTime()) > margin) LockSupport.parkNanos(wait - margin);
+        while (deadline - System.nanoTime() > 0) Thread.onSpinWait();
+        deadline += period;
+    }
+}
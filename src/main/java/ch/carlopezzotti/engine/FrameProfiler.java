@@ -0,0 +1,159 @@
+package ch.carlopezzotti.engine;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-stage frame timings and pipeline counters. The engine thread records the render
+// stages, the presenting thread (the engine thread unless pipelined) the display stages;
+// each histogram has a single writer. Frames are also emitted as JFR events.
+public class FrameProfiler implements FrameProfilerMXBean {
+    public enum Stage { UPDATE, SORT, TRANSFORM, RASTER, CLEAR, ENCODE, WRITE, FRAME }
+
+    static final String OBJECT_NAME = "ch.carlopezzotti.engine:type=FrameProfiler";
+    private static final AtomicInteger instances = new AtomicInteger(1);
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private volatile long frames, trianglesSubmitted, trianglesCulled, trianglesDrawn;
+    private volatile long pixelsWritten, bytesEmitted, framesDropped;
+    // stage time accumulated by TreeScene during the current frame
+    private long sortNanos, transformNanos;
+    private long lastPixels, lastBytes;
+    private ObjectName name;
+
+    public FrameProfiler() {
+        for (int i = 0; i < stages.length; i++) stages[i] = new LatencyHistogram();
+    }
+
+    public LatencyHistogram histogram(Stage s) { return stages[s.ordinal()]; }
+
+    void addSort(long nanos)      { sortNanos += nanos; }
+    void addTransform(long nanos) { transformNanos += nanos; }
+
+    // Closes a frame on the engine thread. render covers scene rendering including the sort
+    // and vertex transforms, which TreeScene reported separately; pixels is a running total.
+    void endFrame(FrameEvent ev, long update, long clear, long render, long total,
+                  RenderStats s, long pixels, long dropped) {
+        long raster = Math.max(0, render - sortNanos - transformNanos);
+        record(Stage.UPDATE, update);
+        record(Stage.CLEAR, clear);
+        record(Stage.SORT, sortNanos);
+        record(Stage.TRANSFORM, transformNanos);
+        record(Stage.RASTER, raster);
+        record(Stage.FRAME, total);
+
+        int culled = s.facesFrustumCulled + s.facesBackfaceCulled + s.facesClipped;
+        trianglesSubmitted += s.facesSubmitted;
+        trianglesCulled    += culled;
+        trianglesDrawn     += s.facesDrawn;
+        pixelsWritten      += pixels - lastPixels;
+        framesDropped       = dropped;
+        frames++;
+
+        if (ev.shouldCommit()) {
+            ev.update = update; ev.clear = clear; ev.sort = sortNanos;
+            ev.transform = transformNanos; ev.raster = raster;
+            ev.trianglesSubmitted = s.facesSubmitted;
+            ev.trianglesCulled = culled;
+            ev.trianglesDrawn = s.facesDrawn;
+            ev.pixelsWritten = pixels - lastPixels;
+            ev.commit();
+        }
+        lastPixels = pixels;
+        sortNanos = transformNanos = 0;
+    }
+
+    // Records one display draw that took total nanoseconds. Displays that do not split
+    // encoding from writing are counted as encoding only.
+    void present(Display d, long total) {
+        long encode = d.getLastEncodeNanos(), write = d.getLastWriteNanos();
+        if (encode < 0 || write < 0) { encode = total; write = 0; }
+        record(Stage.ENCODE, encode);
+        record(Stage.WRITE, write);
+        long bytes = d.getBytesWritten();
+        bytesEmitted += bytes - lastBytes;
+        PresentEvent ev = new PresentEvent();
+        if (ev.shouldCommit()) {
+            ev.encode = encode;
+            ev.write = write;
+            ev.bytes = bytes - lastBytes;
+            ev.commit();
+        }
+        lastBytes = bytes;
+    }
+
+    private void record(Stage s, long nanos) { stages[s.ordinal()].record(nanos); }
+
+    // Registers this profiler with the platform MBean server as
+    // ch.carlopezzotti.engine:type=FrameProfiler; while that name is taken by another engine,
+    // extra profilers get an id key, numbered 2, 3, ... in registration order.
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                name = new ObjectName(OBJECT_NAME + ",id=" + instances.incrementAndGet());
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            name = null;
+        }
+    }
+
+    void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+        }
+        name = null;
+    }
+
+    @Override public long getFrames()             { return frames; }
+    @Override public long getTrianglesSubmitted() { return trianglesSubmitted; }
+    @Override public long getTrianglesCulled()    { return trianglesCulled; }
+    @Override public long getTrianglesDrawn()     { return trianglesDrawn; }
+    @Override public long getPixelsWritten()      { return pixelsWritten; }
+    @Override public long getBytesEmitted()       { return bytesEmitted; }
+    @Override public long getFramesDropped()      { return framesDropped; }
+
+    @Override public Map<String, Double> getP50Micros() { return micros(h -> h.percentile(0.5)); }
+    @Override public Map<String, Double> getP99Micros() { return micros(h -> h.percentile(0.99)); }
+    @Override public Map<String, Double> getMaxMicros() { return micros(LatencyHistogram::max); }
+
+    private Map<String, Double> micros(ToLongFunction<LatencyHistogram> f) {
+        Map<String, Double> m = new LinkedHashMap<>();
+        for (Stage s : Stage.values()) m.put(s.name().toLowerCase(), f.applyAsLong(histogram(s)) / 1000.0);
+        return m;
+    }
+
+    // racy against the writing threads: a sample recorded meanwhile may be lost
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : stages) h.reset();
+        frames = trianglesSubmitted = trianglesCulled = trianglesDrawn = 0;
+        pixelsWritten = bytesEmitted = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : Stage.values()) {
+            LatencyHistogram h = histogram(s);
+            sb.append(String.format("%-9s p50 %7.1f  p99 %7.1f  max %7.1f us%n", s.name().toLowerCase(),
+                      h.percentile(0.5) / 1000.0, h.percentile(0.99) / 1000.0, h.max() / 1000.0));
+        }
+        sb.append(String.format("frames %d, triangles %d/%d drawn (%d culled), pixels %d, bytes %d, dropped %d",
+                  frames, trianglesDrawn, trianglesSubmitted, trianglesCulled, pixelsWritten, bytesEmitted, framesDropped));
+        return sb.toString();
+    }
+}
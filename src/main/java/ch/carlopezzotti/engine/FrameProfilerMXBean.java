@@ -0,0 +1,20 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Map;
+
+// JMX view of a FrameProfiler; stage maps are keyed by stage name, values in microseconds
+public interface FrameProfilerMXBean {
+    long getFrames();
+    long getTrianglesSubmitted();
+    long getTrianglesCulled();
+    long getTrianglesDrawn();
+    long getPixelsWritten();
+    long getBytesEmitted();
+    long getFramesDropped();
+
+    Map<String, Double> getP50Micros();
+    Map<String, Double> getP99Micros();
+    Map<String, Double> getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,54 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Stored reference frames for pixel-exact regression checks, one text file per frame
+// (frame-00000.txt, ...): a "width height" line, then one line per pixel row with '.' for
+// an empty pixel and 'A' + colour code - 1 otherwise, so a failing frame can be diffed.
+public final class GoldenFrames {
+    private final Path dir;
+
+    public GoldenFrames(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path path(int frame) {
+        return dir.resolve(String.format("frame-%05d.txt", frame));
+    }
+
+    public void write(int frame, FrameBuffer f) throws IOException {
+        Files.createDirectories(dir);
+        Files.write(path(frame), encode(f));
+    }
+
+    // number of pixels that differ from the stored frame; -1 if it is missing or has another size
+    public int compare(int frame, FrameBuffer f) throws IOException {
+        Path p = path(frame);
+        if (!Files.exists(p)) return -1;
+        byte[] stored = Files.readAllBytes(p), actual = encode(f);
+        if (stored.length != actual.length) return -1;
+        int diff = 0;
+        for (int i = 0; i < stored.length; i++) if (stored[i] != actual[i]) diff++;
+        return diff;
+    }
+
+    static byte[] encode(FrameBuffer f) {
+        int w = f.getWidth(), h = f.getHeight();
+        byte[] header = (w + " " + h + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[header.length + (w + 1) * h];
+        System.arraycopy(header, 0, out, 0, header.length);
+        byte[] c = f.colors();
+        int o = header.length;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                byte code = c[y * w + x];
+                out[o++] = code == 0 ? (byte) '.' : (byte) ('A' + code - 1);
+            }
+            out[o++] = '\n';
+        }
+        return out;
+    }
+}
@@ -0,0 +1,16 @@
+package ch.carlopezzotti.engine;
+
+// 1x2 pixels per cell as upper/lower half blocks, each half in its own colour (fg/bg)
+public class HalfBlockDisplay extends CellDisplay {
+    public HalfBlockDisplay() {
+        this(false);
+    }
+
+    public HalfBlockDisplay(boolean delta) {
+        this(delta, TerminalOutput.stdout());
+    }
+
+    public HalfBlockDisplay(boolean delta, TerminalOutput out) {
+        super(CellGlyphs.HALF_BLOCK, delta, out);
+    }
+}
@@ -0,0 +1,26 @@
+package ch.carlopezzotti.engine;
+
+// Outcome of Engine.runHeadless: wall time and per-frame time distribution of an uncapped run
+public final class HeadlessResult {
+    public final int frames;
+    public final long totalNanos;
+    public final long p50Nanos, p99Nanos, maxNanos;
+    public final long trianglesDrawn;
+
+    HeadlessResult(int frames, long totalNanos, LatencyHistogram frameTimes, long trianglesDrawn) {
+        this.frames = frames;
+        this.totalNanos = totalNanos;
+        this.p50Nanos = frameTimes.percentile(0.5);
+        this.p99Nanos = frameTimes.percentile(0.99);
+        this.maxNanos = frameTimes.max();
+        this.trianglesDrawn = trianglesDrawn;
+    }
+
+    public double fps() { return totalNanos == 0 ? 0 : frames * 1e9 / totalNanos; }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames in %.1f ms: %.1f fps, frame p50 %.1f us, p99 %.1f us, max %.1f us, %d triangles",
+                frames, totalNanos / 1e6, fps(), p50Nanos / 1e3, p99Nanos / 1e3, maxNanos / 1e3, trianglesDrawn);
+    }
+}
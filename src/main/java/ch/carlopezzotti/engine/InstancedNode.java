@@ -0,0 +1,161 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.helper.Transform;
+import ch.carlopezzotti.engine.helper.Vector3;
+
+// A node drawing its mesh many times, once per instance. Each instance has a position,
+// rotation, uniform scale and colour relative to the node; its local matrix is cached, so
+// per frame an instance costs one matrix product plus the shared mesh work. Edit instances
+// on the render thread (or through TreeScene.post).
+public class InstancedNode extends Node {
+    private static final int MATRIX = 12;
+
+    private int count;
+    private float[] transforms = new float[7 * 16];   // px, py, pz, rx, ry, rz, scale
+    private float[] matrices = new float[MATRIX * 16];
+    private Engine.Color[] colors = new Engine.Color[16];
+    // bounding sphere of all instances in node space
+    private final float[] bounds = new float[4];
+    private boolean boundsDirty = true;
+
+    public InstancedNode(String id, Mesh mesh) {
+        super(id);
+        setMesh(mesh);
+    }
+
+    public int getInstanceCount() { return count; }
+
+    public int addInstance(Vector3 position, Vector3 rotation, float scale, Engine.Color color) {
+        if (count == colors.length) {
+            int n = count * 2;
+            transforms = Arrays.copyOf(transforms, 7 * n);
+            matrices = Arrays.copyOf(matrices, MATRIX * n);
+            colors = Arrays.copyOf(colors, n);
+        }
+        int i = count++;
+        colors[i] = color;
+        set(i, position, rotation, scale);
+        return i;
+    }
+
+    // removes instance i by moving the last instance into its slot
+    public void removeInstance(int i) {
+        checkIndex(i);
+        int last = --count;
+        System.arraycopy(transforms, 7 * last, transforms, 7 * i, 7);
+        System.arraycopy(matrices, MATRIX * last, matrices, MATRIX * i, MATRIX);
+        colors[i] = colors[last];
+        colors[last] = null;
+        changed();
+    }
+
+    public Vector3 getInstancePosition(int i) {
+        checkIndex(i);
+        return new Vector3(transforms[7*i], transforms[7*i+1], transforms[7*i+2]);
+    }
+
+    public Vector3 getInstanceRotation(int i) {
+        checkIndex(i);
+        return new Vector3(transforms[7*i+3], transforms[7*i+4], transforms[7*i+5]);
+    }
+
+    public float getInstanceScale(int i) {
+        checkIndex(i);
+        return transforms[7*i+6];
+    }
+
+    public void setInstancePosition(int i, Vector3 p) {
+        checkIndex(i);
+        set(i, p, getInstanceRotation(i), getInstanceScale(i));
+    }
+
+    public void setInstanceRotation(int i, Vector3 r) {
+        checkIndex(i);
+        set(i, getInstancePosition(i), r, getInstanceScale(i));
+    }
+
+    public void setInstanceScale(int i, float s) {
+        checkIndex(i);
+        set(i, getInstancePosition(i), getInstanceRotation(i), s);
+    }
+
+    public Engine.Color getInstanceColor(int i) {
+        checkIndex(i);
+        return colors[i];
+    }
+
+    public void setInstanceColor(int i, Engine.Color c) {
+        checkIndex(i);
+        colors[i] = c;
+    }
+
+    @Override
+    public void setMesh(Mesh m) {
+        super.setMesh(m);
+        boundsDirty = true;
+    }
+
+    // cached node-space matrix of instance i
+    float[] matrices() { return matrices; }
+
+    @Override
+    boolean localBounds(float[] out) {
+        if (count == 0 || getMesh().triangleCount() == 0) return false;
+        if (boundsDirty) computeBounds();
+        System.arraycopy(bounds, 0, out, 0, 4);
+        return true;
+    }
+
+    private void set(int i, Vector3 p, Vector3 r, float s) {
+        int o = 7 * i;
+        transforms[o] = p.x; transforms[o+1] = p.y; transforms[o+2] = p.z;
+        transforms[o+3] = r.x; transforms[o+4] = r.y; transforms[o+5] = r.z;
+        transforms[o+6] = s;
+        Transform.toMatrix(p.x, p.y, p.z, r.x, r.y, r.z, s, matrices, MATRIX * i);
+        changed();
+    }
+
+    private void changed() {
+        boundsDirty = true;
+        SpatialGrid g = grid;
+        if (g != null) g.markMoved(this);
+    }
+
+    private void computeBounds() {
+        Mesh mesh = getMesh();
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            float[] c = instanceSphere(mesh, i);
+            minX = Math.min(minX, c[0] - c[3]); maxX = Math.max(maxX, c[0] + c[3]);
+            minY = Math.min(minY, c[1] - c[3]); maxY = Math.max(maxY, c[1] + c[3]);
+            minZ = Math.min(minZ, c[2] - c[3]); maxZ = Math.max(maxZ, c[2] + c[3]);
+        }
+        float cx = (minX + maxX) / 2, cy = (minY + maxY) / 2, cz = (minZ + maxZ) / 2, r = 0;
+        for (int i = 0; i < count; i++) {
+            float[] c = instanceSphere(mesh, i);
+            float dx = c[0] - cx, dy = c[1] - cy, dz = c[2] - cz;
+            r = Math.max(r, (float) Math.sqrt(dx*dx + dy*dy + dz*dz) + c[3]);
+        }
+        bounds[0] = cx; bounds[1] = cy; bounds[2] = cz; bounds[3] = r;
+        boundsDirty = false;
+    }
+
+    private float[] instanceSphere(Mesh mesh, int i) {
+        float[] m = matrices;
+        int o = MATRIX * i;
+        float x = mesh.boundX(), y = mesh.boundY(), z = mesh.boundZ();
+        return new float[] {
+            m[o]*x   + m[o+1]*y + m[o+2]*z  + m[o+3],
+            m[o+4]*x + m[o+5]*y + m[o+6]*z  + m[o+7],
+            m[o+8]*x + m[o+9]*y + m[o+10]*z + m[o+11],
+            mesh.boundRadius() * Math.abs(transforms[7*i+6])
+        };
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("instance " + i + " of " + count);
+    }
+}
@@ -0,0 +1,34 @@
+package ch.carlopezzotti.engine;
+
+// Array kernels of the hot loops. The SIMD implementation (VectorKernels, on the incubating
+// jdk.incubator.vector module, built with -P simd) is used when the JVM was started with
+// --add-modules jdk.incubator.vector, unless -Dtad.simd=false; otherwise the scalar one.
+// Both produce bit-identical results.
+interface Kernels {
+    Kernels ACTIVE = select();
+
+    // (x, y, depth, clipped) per point of in (xyz) transformed by the 3x4 matrix m and
+    // projected with scale fov around (hw, hh); a clipped point only gets its flag written
+    void transformProject(float[] m, float fov, float hw, float hh, float[] in, float[] out, int count);
+
+    // bit i of bits set iff a[off + i] != 0, for i < len; bits must hold len bits
+    void nonZeroBits(byte[] a, int off, int len, long[] bits);
+
+    String name();
+
+    private static Kernels select() {
+        if (!Boolean.parseBoolean(System.getProperty("tad.simd", "true"))) return new ScalarKernels();
+        Kernels v = vector();
+        return v != null ? v : new ScalarKernels();
+    }
+
+    // the SIMD kernels, or null when they were not built (-P simd) or the module is missing
+    static Kernels vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            return (Kernels) Class.forName("ch.carlopezzotti.engine.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+// Fixed-size log-linear histogram of durations in nanoseconds: 16 linear sub-buckets per
+// power of two, so any value is reported within ~6%. Recording is allocation-free and
+// meant for a single writing thread; readers on other threads see approximate values.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4, SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private volatile long count, max;
+    private long sum;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[index(nanos)]++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+        count++;
+    }
+
+    public long count() { return count; }
+    public long max() { return max; }
+    public double mean() { long n = count; return n == 0 ? 0 : (double) sum / n; }
+
+    // value at quantile q in [0, 1], the midpoint of the bucket holding it
+    public long percentile(double q) {
+        long n = count;
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n)), seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i + 1 == BUCKETS ? max : Math.min(max, (lowest(i) + lowest(i + 1) - 1) / 2);
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = max = sum = 0;
+    }
+
+    private static int index(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return (e - SUB_BITS + 1) * SUB + (int) ((v >>> (e - SUB_BITS)) & (SUB - 1));
+    }
+
+    private static long lowest(int i) {
+        if (i < SUB) return i;
+        int e = i / SUB + SUB_BITS - 1;
+        return (long) (SUB + i % SUB) << (e - SUB_BITS);
+    }
+}
@@ -0,0 +1,107 @@
+package ch.carlopezzotti.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A mesh plus coarser copies of it, built once by vertex clustering. Level i > 0 snaps the
+// vertices to a grid of resolution(i) cells across the mesh's longest side; it is drawn
+// while one cell stays under about a pixel, i.e. while the projected bounding radius is
+// at most resolution(i) / 2 pixels.
+public final class LodMesh {
+    private static final int MAX_RESOLUTION = 64;
+    private static final int MIN_TRIANGLES = 12;
+    // a coarser level must drop at least this share of the previous level's faces
+    private static final float MIN_REDUCTION = 0.75f;
+    // relative band around each switch radius that must be crossed before switching back
+    private static final float HYSTERESIS = 0.15f;
+
+    private final Mesh[] levels;
+    private final float[] maxRadius;   // largest projected radius (px) each level is meant for
+
+    private LodMesh(Mesh[] levels, float[] maxRadius) {
+        this.levels = levels;
+        this.maxRadius = maxRadius;
+    }
+
+    public static LodMesh generate(Mesh base) {
+        List<Mesh> meshes = new ArrayList<>();
+        List<Float> radii = new ArrayList<>();
+        meshes.add(base);
+        radii.add(Float.POSITIVE_INFINITY);
+        Mesh prev = base;
+        for (int res = MAX_RESOLUTION; res >= 2 && prev.triangleCount() > MIN_TRIANGLES; res /= 2) {
+            Mesh m = cluster(base, res);
+            if (m.triangleCount() == 0) break;
+            if (m.triangleCount() > prev.triangleCount() * MIN_REDUCTION) continue;
+            meshes.add(m);
+            radii.add(res / 2f);
+            prev = m;
+        }
+        float[] r = new float[radii.size()];
+        for (int i = 0; i < r.length; i++) r[i] = radii.get(i);
+        return new LodMesh(meshes.toArray(new Mesh[0]), r);
+    }
+
+    // Vertex clustering: every vertex moves to the mean of its grid cell, faces that collapse
+    // to a line or point are dropped. Winding is preserved.
+    public static Mesh cluster(Mesh mesh, int resolution) {
+        float[] p = mesh.positions();
+        int vc = mesh.vertexCount();
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE, extent = 0;
+        for (int i = 0; i < p.length; i += 3) {
+            minX = Math.min(minX, p[i]); minY = Math.min(minY, p[i+1]); minZ = Math.min(minZ, p[i+2]);
+        }
+        for (int i = 0; i < p.length; i += 3)
+            extent = Math.max(extent, Math.max(p[i] - minX, Math.max(p[i+1] - minY, p[i+2] - minZ)));
+        if (extent == 0) return Mesh.EMPTY;
+        float inv = resolution / extent;
+
+        // open-addressing map from cell key to output vertex
+        int cap = Integer.highestOneBit(Math.max(vc, 1)) << 2;
+        long[] keys = new long[cap];
+        int[] slots = new int[cap];
+        Arrays.fill(slots, -1);
+        int[] remap = new int[vc];
+        float[] sum = new float[3 * vc];
+        int[] weight = new int[vc];
+        int out = 0;
+        for (int v = 0, i = 0; v < vc; v++, i += 3) {
+            long cx = Math.min(resolution, (int)((p[i]   - minX) * inv));
+            long cy = Math.min(resolution, (int)((p[i+1] - minY) * inv));
+            long cz = Math.min(resolution, (int)((p[i+2] - minZ) * inv));
+            long key = (cx << 42) | (cy << 21) | cz;
+            int h = (int)(key * 0x9E3779B97F4A7C15L >>> 32) & (cap - 1);
+            while (slots[h] >= 0 && keys[h] != key) h = (h + 1) & (cap - 1);
+            if (slots[h] < 0) { keys[h] = key; slots[h] = out++; }
+            int c = slots[h];
+            remap[v] = c;
+            sum[3*c] += p[i]; sum[3*c+1] += p[i+1]; sum[3*c+2] += p[i+2];
+            weight[c]++;
+        }
+
+        Mesh.Builder b = Mesh.builder();
+        for (int c = 0; c < out; c++)
+            b.addVertex(sum[3*c] / weight[c], sum[3*c+1] / weight[c], sum[3*c+2] / weight[c]);
+        int[] idx = mesh.indices();
+        for (int i = 0; i < idx.length; i += 3) {
+            int a = remap[idx[i]], bb = remap[idx[i+1]], c = remap[idx[i+2]];
+            if (a != bb && bb != c && a != c) b.addTriangle(a, bb, c);
+        }
+        return b.build();
+    }
+
+    public int levelCount() { return levels.length; }
+    public Mesh level(int i) { return levels[i]; }
+    public Mesh base() { return levels[0]; }
+
+    // Level to draw at the given projected bounding radius, starting from the current level.
+    // A switch only happens once the radius is past the boundary by the hysteresis band, so
+    // a node hovering around a boundary keeps its level.
+    public int select(int current, float radiusPx) {
+        int l = Math.min(current, levels.length - 1);
+        while (l > 0 && radiusPx > maxRadius[l] * (1 + HYSTERESIS)) l--;
+        while (l + 1 < levels.length && radiusPx < maxRadius[l + 1] * (1 - HYSTERESIS)) l++;
+        return l;
+    }
+}
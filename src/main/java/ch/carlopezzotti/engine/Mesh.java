@@ -0,0 +1,111 @@
+package ch.carlopezzotti.engine;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// Packed triangle mesh: xyz per vertex in positions, three vertex indices per face.
+// The accessors hand out the backing arrays without copying; callers must not modify them.
+public final class Mesh {
+    public static final Mesh EMPTY = new Mesh(new float[0], new int[0]);
+
+    private final float[] positions;
+    private final int[] indices;
+    // bounding sphere in model space
+    private final float boundX, boundY, boundZ, boundRadius;
+
+    public Mesh(float[] positions, int[] indices) {
+        if (positions.length % 3 != 0) throw new IllegalArgumentException("positions length not a multiple of 3");
+        if (indices.length % 3 != 0) throw new IllegalArgumentException("indices length not a multiple of 3");
+        this.positions = positions;
+        this.indices = indices;
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int i = 0; i < positions.length; i += 3) {
+            minX = Math.min(minX, positions[i]);   maxX = Math.max(maxX, positions[i]);
+            minY = Math.min(minY, positions[i+1]); maxY = Math.max(maxY, positions[i+1]);
+            minZ = Math.min(minZ, positions[i+2]); maxZ = Math.max(maxZ, positions[i+2]);
+        }
+        if (positions.length == 0) minX = minY = minZ = maxX = maxY = maxZ = 0;
+        boundX = (minX + maxX) / 2;
+        boundY = (minY + maxY) / 2;
+        boundZ = (minZ + maxZ) / 2;
+        float r2 = 0;
+        for (int i = 0; i < positions.length; i += 3) {
+            float dx = positions[i] - boundX, dy = positions[i+1] - boundY, dz = positions[i+2] - boundZ;
+            r2 = Math.max(r2, dx*dx + dy*dy + dz*dz);
+        }
+        boundRadius = (float)Math.sqrt(r2);
+    }
+
+    public float[] positions() { return positions; }
+    public int[] indices() { return indices; }
+    public int vertexCount() { return positions.length / 3; }
+    public int triangleCount() { return indices.length / 3; }
+    public float boundX() { return boundX; }
+    public float boundY() { return boundY; }
+    public float boundZ() { return boundZ; }
+    public float boundRadius() { return boundRadius; }
+
+    public FloatBuffer positionBuffer() { return FloatBuffer.wrap(positions).asReadOnlyBuffer(); }
+    public IntBuffer indexBuffer() { return IntBuffer.wrap(indices).asReadOnlyBuffer(); }
+
+    public static Builder builder() { return new Builder(); }
+
+    public static final class Builder {
+        private float[] positions = new float[3 * 64];
+        private int[] indices = new int[3 * 64];
+        private int positionCount, indexCount;
+
+        public Builder addVertex(float x, float y, float z) {
+            ensurePositions(3);
+            positions[positionCount++] = x;
+            positions[positionCount++] = y;
+            positions[positionCount++] = z;
+            return this;
+        }
+
+        public Builder addVertices(float[] xyz, int off, int len) {
+            ensurePositions(len);
+            System.arraycopy(xyz, off, positions, positionCount, len);
+            positionCount += len;
+            return this;
+        }
+
+        public Builder addTriangle(int a, int b, int c) {
+            ensureIndices(3);
+            indices[indexCount++] = a;
+            indices[indexCount++] = b;
+            indices[indexCount++] = c;
+            return this;
+        }
+
+        public Builder addTriangles(int[] abc, int off, int len) {
+            ensureIndices(len);
+            System.arraycopy(abc, off, indices, indexCount, len);
+            indexCount += len;
+            return this;
+        }
+
+        public int vertexCount() { return positionCount / 3; }
+
+        public Mesh build() {
+            int vc = positionCount / 3;
+            for (int i = 0; i < indexCount; i++)
+                if (indices[i] < 0 || indices[i] >= vc)
+                    throw new IllegalStateException("face index " + indices[i] + " out of range [0," + vc + ")");
+            return new Mesh(Arrays.copyOf(positions, positionCount), Arrays.copyOf(indices, indexCount));
+        }
+
+        private void ensurePositions(int n) {
+            if (positionCount + n > positions.length)
+                positions = Arrays.copyOf(positions, Math.max(positions.length * 2, positionCount + n));
+        }
+
+        private void ensureIndices(int n) {
+            if (indexCount + n > indices.length)
+                indices = Arrays.copyOf(indices, Math.max(indices.length * 2, indexCount + n));
+        }
+    }
+}
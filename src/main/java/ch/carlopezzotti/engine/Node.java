@@ -1,29 +1,51 @@
 package ch.carlopezzotti.engine;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import ch.carlopezzotti.engine.helper.Transform;
 import ch.carlopezzotti.engine.helper.Vector3;
 
 public class Node {
     private final String id;
-    private Vector3 localPosition = new Vector3(0, 0, 0);
-    private Vector3 localRotation = new Vector3(0, 0, 0);
-    private Vector3 localScale    = new Vector3(1, 1, 1);
-    private Engine.Color color = Engine.Color.WHITE;
-    private final List<double[]> vertices = new ArrayList<>();
-    private final List<int[]> faces = new ArrayList<>();
-    private Node parent;
-    private final List<Node> children = new ArrayList<>();
-
-    private boolean inheritYaw   = true;
-    private boolean inheritPitch = false;
-    private boolean inheritRoll  = false;
-
-    private Thread updateThread;
-    private final AtomicBoolean running = new AtomicBoolean(false);
+    // transform state is written from input/update threads and read by the renderer;
+    // the Vector3 values are replaced, never mutated in place
+    private volatile Vector3 localPosition = new Vector3(0, 0, 0);
+    private volatile Vector3 localRotation = new Vector3(0, 0, 0);
+    private volatile Vector3 localScale    = new Vector3(1, 1, 1);
+    private volatile Engine.Color color = Engine.Color.WHITE;
+    private volatile Mesh mesh = Mesh.EMPTY;
+    private volatile LodMesh lod;
+    int lodLevel;   // level drawn last frame, render thread only
+    private volatile Node parent;
+    // copy-on-write array, replaced under childLock on every change: walks read a stable
+    // snapshot without locking or allocating while other threads add children
+    private volatile Node[] children = NO_CHILDREN;
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private final Object childLock = new Object();
+
+    private volatile boolean inheritYaw   = true;
+    private volatile boolean inheritPitch = false;
+    private volatile boolean inheritRoll  = false;
+
+    private boolean frustumCulling  = true;
+    private boolean backfaceCulling = false;
+
+    private volatile Transform globalTransform;
+    private volatile boolean dirty = true;
+
+    // spatial index bookkeeping, maintained by SpatialGrid / TreeScene
+    volatile SpatialGrid grid;
+    volatile boolean indexQueued;
+    boolean indexed;
+    long cellKey;
+    float worldX, worldY, worldZ, worldRadius;
+    int queryStamp;   // last SpatialGrid query that tested this node
+
+    private static final int MAX_UPDATE_STEPS = 5;
+    private volatile Consumer<Node> updateAction;
+    private long updateInterval, updateElapsed;
 
     public Node(String id) {
         this.id = id;
@@ -31,37 +53,115 @@ public class Node {
 
     public String getId() { return id; }
     public Vector3 getLocalPosition() { return localPosition; }
-    public void setLocalPosition(Vector3 pos) { localPosition = pos; }
+    public void setLocalPosition(Vector3 pos) { localPosition = pos; markDirty(); }
     public Vector3 getLocalRotation() { return localRotation; }
-    public void setLocalRotation(Vector3 rot) { localRotation = rot; }
-    public void rotateX(float angle) { localRotation = localRotation.add(new Vector3(angle, 0, 0)); }
-    public void rotateY(float angle) { localRotation = localRotation.add(new Vector3(0, angle, 0)); }
-    public void rotateZ(float angle) { localRotation = localRotation.add(new Vector3(0, 0, angle)); }
+    public void setLocalRotation(Vector3 rot) { localRotation = rot; markDirty(); }
+    public void rotateX(float angle) { localRotation = localRotation.add(new Vector3(angle, 0, 0)); markDirty(); }
+    public void rotateY(float angle) { localRotation = localRotation.add(new Vector3(0, angle, 0)); markDirty(); }
+    public void rotateZ(float angle) { localRotation = localRotation.add(new Vector3(0, 0, angle)); markDirty(); }
     public Vector3 getLocalScale() { return localScale; }
-    public void setLocalScale(Vector3 scale) { localScale = scale; }
-    public void scale(float s) { localScale = localScale.mul(s); }
+    public void setLocalScale(Vector3 scale) { localScale = scale; markDirty(); }
+    public void scale(float s) { localScale = localScale.mul(s); markDirty(); }
 
     public Engine.Color getColor() { return color; }
     public void setColor(Engine.Color c) { color = c; }
 
-    public List<double[]> getVertices() { return vertices; }
-    public List<int[]> getFaces() { return faces; }
-    public void addVertex(double x, double y, double z) { vertices.add(new double[]{x, y, z}); }
-    public void addFace(int i1, int i2, int i3) { faces.add(new int[]{i1, i2, i3}); }
-    public void setVertices(List<double[]> verts) { vertices.clear(); vertices.addAll(verts); }
-    public void setFaces(List<int[]> fs) { faces.clear(); faces.addAll(fs); }
+    public Mesh getMesh() { return mesh; }
+    public void setMesh(Mesh m) { lod = null; setMeshOnly(m); }
+
+    // Draws a coarser level of the mesh when the node is small on screen; the full mesh
+    // (level 0) is what getMesh() returns and what bounds and picking use.
+    public LodMesh getLod() { return lod; }
+    public void setLod(LodMesh l) {
+        setMeshOnly(l != null ? l.base() : Mesh.EMPTY);
+        lodLevel = 0;
+        lod = l;
+    }
+
+    private void setMeshOnly(Mesh m) { mesh = m; SpatialGrid g = grid; if (g != null) g.markMoved(this); }
+
+    // skip the whole mesh when its bounding sphere is outside the view frustum
+    public boolean isFrustumCulling() { return frustumCulling; }
+    public void setFrustumCulling(boolean on) { frustumCulling = on; }
+    // drop faces whose projected winding is clockwise (meshes with counter-clockwise front faces)
+    public boolean isBackfaceCulling() { return backfaceCulling; }
+    public void setBackfaceCulling(boolean on) { backfaceCulling = on; }
+
+    // node-space bounding sphere (x, y, z, r) of what this node draws; false if nothing
+    boolean localBounds(float[] out) {
+        Mesh m = mesh;
+        if (m.triangleCount() == 0) return false;
+        out[0] = m.boundX(); out[1] = m.boundY(); out[2] = m.boundZ(); out[3] = m.boundRadius();
+        return true;
+    }
 
     public Node getParent() { return parent; }
-    public void addChild(Node child) { child.parent = this; children.add(child); }
-    public List<Node> getChildren() { return children; }
+    public void addChild(Node child) {
+        child.parent = this;
+        synchronized (childLock) {
+            Node[] c = Arrays.copyOf(children, children.length + 1);
+            c[c.length - 1] = child;
+            children = c;
+        }
+        SpatialGrid g = grid;
+        if (g != null) child.attachIndex(g);
+        child.markDirty();
+    }
+
+    public void removeChild(Node child) {
+        boolean removed = false;
+        synchronized (childLock) {
+            Node[] c = children;
+            for (int i = 0; i < c.length; i++) {
+                if (c[i] != child) continue;
+                Node[] r = new Node[c.length - 1];
+                System.arraycopy(c, 0, r, 0, i);
+                System.arraycopy(c, i + 1, r, i, r.length - i);
+                children = r;
+                removed = true;
+                break;
+            }
+        }
+        if (removed) {
+            child.parent = null;
+            child.markDirty();   // the index sees it detached on its next refresh
+        }
+    }
+    // read-only snapshot of the children at the time of the call
+    public List<Node> getChildren() { return Collections.unmodifiableList(Arrays.asList(children)); }
+    Node[] childArray() { return children; }
 
     public void setInheritRotation(boolean yaw, boolean pitch, boolean roll) {
         inheritYaw   = yaw;
         inheritPitch = pitch;
         inheritRoll  = roll;
+        markDirty();
+    }
+
+    // invalidates the cached global transform of this node and its whole subtree
+    protected void markDirty() {
+        dirty = true;
+        SpatialGrid g = grid;
+        if (g != null) g.markMoved(this);
+        for (Node c : children) c.markDirty();
+    }
+
+    void attachIndex(SpatialGrid g) {
+        grid = g;
+        g.markMoved(this);
+        for (Node c : children) c.attachIndex(g);
     }
 
     public Transform getGlobalTransform() {
+        if (dirty) {
+            // clear before reading the fields, so a concurrent setter raises it again
+            dirty = false;
+            globalTransform = computeGlobalTransform();
+        }
+        return globalTransform;
+    }
+
+    private Transform computeGlobalTransform() {
         Transform t = new Transform(localPosition, localRotation, localScale);
         if (parent != null) {
             Transform pt = parent.getGlobalTransform();
@@ -77,34 +177,37 @@ public class Node {
         return t;
     }
 
-    public int[] projectVertex(Engine engine, double[] v) {
+    public int[] projectVertex(Engine engine, int vertex) {
+        float[] p = mesh.positions();
+        int o = vertex * 3;
         Transform gt = getGlobalTransform();
-        Vector3 tv = gt.apply(new Vector3((float)v[0], (float)v[1], (float)v[2]));
+        Vector3 tv = gt.apply(new Vector3(p[o], p[o+1], p[o+2]));
         return engine.project(tv.x, tv.y, tv.z);
     }
 
+    // Registers a behaviour run every intervalMillis of engine time. Behaviours are stepped
+    // on the engine thread at the start of each frame (see TreeScene.update), so they never
+    // race with rendering.
     public void startAutoUpdate(long intervalMillis, Consumer<Node> action) {
-        if (running.get()) return;
-        running.set(true);
-        updateThread = new Thread(() -> {
-            try {
-                while (running.get()) {
-                    long t0 = System.currentTimeMillis();
-                    action.accept(this);
-                    long dt = System.currentTimeMillis() - t0;
-                    if (dt < intervalMillis) Thread.sleep(intervalMillis - dt);
-                }
-            } catch (InterruptedException ignored) {}
-        }, "Node-AutoUpdate-" + id);
-        updateThread.setDaemon(true);
-        updateThread.start();
+        if (updateAction != null) return;
+        updateInterval = Math.max(1, intervalMillis) * 1_000_000L;
+        updateElapsed  = 0;
+        updateAction   = action;
     }
 
     public void stopAutoUpdate() {
-        running.set(false);
-        if (updateThread != null) {
-            updateThread.interrupt();
-            updateThread = null;
+        updateAction = null;
+    }
+
+    // fixed-timestep catch-up, bounded so a long stall does not trigger a burst of steps
+    void tick(long dtNanos) {
+        Consumer<Node> action = updateAction;
+        if (action == null) return;
+        updateElapsed += dtNanos;
+        for (int steps = 0; updateElapsed >= updateInterval; steps++) {
+            if (steps == MAX_UPDATE_STEPS) { updateElapsed = 0; break; }
+            action.accept(this);
+            updateElapsed -= updateInterval;
         }
     }
 }
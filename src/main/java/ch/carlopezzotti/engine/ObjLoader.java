@@ -0,0 +1,200 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+// Wavefront OBJ loader. Reads "v" and "f" records straight from a memory-mapped file with a
+// hand-written number parser, fan-triangulates polygons and fills a Mesh. load() keeps a
+// binary copy next to the source (<file>.meshbin) and maps that instead while it is current.
+public final class ObjLoader {
+    private static final int MAGIC = 0x4D444154; // "TADM"
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8 + 8 + 4 + 4;
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private ObjLoader() {}
+
+    // loads through the binary cache, rebuilding it when missing or stale
+    public static Mesh load(Path obj) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(obj, BasicFileAttributes.class);
+        Path cache = cachePath(obj);
+        Mesh mesh = readCache(cache, attrs);
+        if (mesh != null) return mesh;
+        mesh = parse(obj);
+        try {
+            writeCache(cache, attrs, mesh);
+        } catch (IOException ignored) {
+            // read-only location: keep working without a cache
+        }
+        return mesh;
+    }
+
+    public static Mesh parse(Path obj) throws IOException {
+        try (FileChannel ch = FileChannel.open(obj, StandardOpenOption.READ)) {
+            return new Parser(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size())).parse();
+        }
+    }
+
+    public static Path cachePath(Path obj) {
+        return obj.resolveSibling(obj.getFileName() + ".meshbin");
+    }
+
+    private static Mesh readCache(Path cache, BasicFileAttributes src) throws IOException {
+        if (!Files.isRegularFile(cache)) return null;
+        try (FileChannel ch = FileChannel.open(cache, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER) return null;
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            if (b.getInt() != MAGIC || b.getInt() != VERSION) return null;
+            if (b.getLong() != src.size() || b.getLong() != src.lastModifiedTime().toMillis()) return null;
+            int floats = b.getInt(), ints = b.getInt();
+            if (ch.size() != HEADER + 4L * floats + 4L * ints) return null;
+            float[] positions = new float[floats];
+            int[] indices = new int[ints];
+            b.asFloatBuffer().get(positions);
+            b.position(b.position() + 4 * floats);
+            b.asIntBuffer().get(indices);
+            return new Mesh(positions, indices);
+        }
+    }
+
+    private static void writeCache(Path cache, BasicFileAttributes src, Mesh mesh) throws IOException {
+        float[] positions = mesh.positions();
+        int[] indices = mesh.indices();
+        ByteBuffer b = ByteBuffer.allocate(HEADER + 4 * positions.length + 4 * indices.length)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(MAGIC).putInt(VERSION)
+         .putLong(src.size()).putLong(src.lastModifiedTime().toMillis())
+         .putInt(positions.length).putInt(indices.length);
+        b.asFloatBuffer().put(positions);
+        b.position(b.position() + 4 * positions.length);
+        b.asIntBuffer().put(indices);
+        b.rewind();
+        Path tmp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) ch.write(b);
+        }
+        Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static final class Parser {
+        private final ByteBuffer buf;
+        private final int limit;
+        private int pos, line = 1;
+        private final Mesh.Builder mesh = Mesh.builder();
+        private int[] poly = new int[8];
+
+        Parser(ByteBuffer buf) {
+            this.buf = buf;
+            this.limit = buf.limit();
+        }
+
+        Mesh parse() throws IOException {
+            while (pos < limit) {
+                skipBlanks();
+                if (pos + 1 < limit && isBlank(buf.get(pos + 1))) {
+                    byte c = buf.get(pos);
+                    if (c == 'v') {
+                        pos++;
+                        mesh.addVertex(nextFloat(), nextFloat(), nextFloat());
+                    } else if (c == 'f') {
+                        pos++;
+                        face();
+                    }
+                }
+                skipLine();
+            }
+            try {
+                return mesh.build();
+            } catch (IllegalStateException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        private void face() throws IOException {
+            int n = 0, vc = mesh.vertexCount();
+            while (true) {
+                skipBlanks();
+                if (pos >= limit || isEol(buf.get(pos))) break;
+                int i = nextInt();
+                // 1-based, negative values count back from the last vertex
+                i = i < 0 ? vc + i : i - 1;
+                if (n == poly.length) poly = Arrays.copyOf(poly, n * 2);
+                poly[n++] = i;
+                // skip texture/normal references
+                while (pos < limit && !isBlank(buf.get(pos)) && !isEol(buf.get(pos))) pos++;
+            }
+            if (n < 3) throw error("face with fewer than 3 vertices");
+            for (int k = 1; k + 1 < n; k++) mesh.addTriangle(poly[0], poly[k], poly[k + 1]);
+        }
+
+        private int nextInt() throws IOException {
+            boolean neg = false;
+            if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+')) neg = buf.get(pos++) == '-';
+            int start = pos, v = 0;
+            while (pos < limit && isDigit(buf.get(pos))) v = v * 10 + (buf.get(pos++) - '0');
+            if (pos == start) throw error("expected an integer");
+            return neg ? -v : v;
+        }
+
+        private float nextFloat() throws IOException {
+            skipBlanks();
+            boolean neg = false;
+            if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+')) neg = buf.get(pos++) == '-';
+            long mant = 0;
+            int digits = 0, exp = 0, start = pos;
+            for (; pos < limit && isDigit(buf.get(pos)); pos++) {
+                if (digits < 18) { mant = mant * 10 + (buf.get(pos) - '0'); if (mant != 0) digits++; }
+                else exp++;
+            }
+            if (pos < limit && buf.get(pos) == '.') {
+                pos++;
+                for (; pos < limit && isDigit(buf.get(pos)); pos++) {
+                    if (digits < 18) { mant = mant * 10 + (buf.get(pos) - '0'); if (mant != 0) digits++; exp--; }
+                }
+            }
+            if (pos == start) throw error("expected a number");
+            if (pos < limit && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+                pos++;
+                exp += nextInt();
+            }
+            double v = mant;
+            if (exp > 0) v *= exp < POW10.length ? POW10[exp] : Math.pow(10, exp);
+            else if (exp < 0) v /= -exp < POW10.length ? POW10[-exp] : Math.pow(10, -exp);
+            return (float) (neg ? -v : v);
+        }
+
+        private void skipBlanks() {
+            while (pos < limit && isBlank(buf.get(pos))) pos++;
+        }
+
+        private void skipLine() {
+            while (pos < limit && buf.get(pos) != '\n') pos++;
+            pos++;
+            line++;
+        }
+
+        private IOException error(String msg) {
+            return new IOException(msg + " at line " + line);
+        }
+
+        private static boolean isBlank(byte c) { return c == ' ' || c == '\t'; }
+        private static boolean isEol(byte c) { return c == '\n' || c == '\r' || c == '#'; }
+        private static boolean isDigit(byte c) { return c >= '0' && c <= '9'; }
+    }
+}
@@ -0,0 +1,75 @@
+package ch.carlopezzotti.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Display without a terminal: keeps a copy of the last frame in memory, and optionally
+// records every frame as golden output or checks every frame against it.
+public class OffscreenDisplay implements Display {
+    private FrameBuffer last;
+    private GoldenFrames golden;
+    private boolean record;
+    private int frames, mismatchedFrames, firstMismatch = -1;
+    private long lastDiff;
+
+    // record true writes each frame to golden, false compares each frame with it
+    public void setGolden(GoldenFrames golden, boolean record) {
+        this.golden = golden;
+        this.record = record;
+    }
+
+    @Override public void init() {}
+    @Override public void clear() {}
+
+    @Override
+    public void draw(FrameBuffer frame) {
+        if (last == null || last.getWidth() != frame.getWidth() || last.getHeight() != frame.getHeight())
+            last = new FrameBuffer(frame.getWidth(), frame.getHeight());
+        System.arraycopy(frame.colors(), 0, last.colors(), 0, last.colors().length);
+        if (golden != null) {
+            try {
+                if (record) {
+                    golden.write(frames, frame);
+                } else {
+                    int diff = golden.compare(frames, frame);
+                    lastDiff = diff;
+                    if (diff != 0) {
+                        mismatchedFrames++;
+                        if (firstMismatch < 0) firstMismatch = frames;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        frames++;
+    }
+
+    // last frame drawn (colours only), or null before the first one
+    public FrameBuffer getFrame() { return last; }
+    public int getFrameCount() { return frames; }
+    // frames that differed from (or were missing in) the golden set, first one, last diff
+    public int getMismatchedFrames() { return mismatchedFrames; }
+    public int getFirstMismatch() { return firstMismatch; }
+    public long getLastDiffPixels() { return lastDiff; }
+
+    // the last frame as Braille cells, one text line per cell row, no colours
+    public String toText() {
+        if (last == null) return "";
+        int w = last.getWidth(), h = last.getHeight();
+        StringBuilder sb = new StringBuilder();
+        for (int cy = 0; cy < h; cy += 4) {
+            for (int cx = 0; cx < w; cx += 2)
+                sb.append(CellGlyphs.BRAILLE.text[CellDisplay.cell(CellGlyphs.BRAILLE, last.colors(), w, h, cx, cy) & 0xFFFF]);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void dump(Path file) throws IOException {
+        Files.writeString(file, toText(), StandardCharsets.UTF_8);
+    }
+}
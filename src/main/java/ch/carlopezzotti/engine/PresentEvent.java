@@ -0,0 +1,21 @@
+package ch.carlopezzotti.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event per frame handed to the display (on the presenter thread when pipelined)
+@Name("ch.carlopezzotti.engine.Present")
+@Label("Present")
+@Category("TAD")
+@Description("Encoding and writing one frame to the display")
+@StackTrace(false)
+class PresentEvent extends jdk.jfr.Event {
+    @Label("Encode") @Timespan long encode;
+    @Label("Write") @Timespan long write;
+    @Label("Bytes") @DataAmount long bytes;
+}
@@ -0,0 +1,68 @@
+package ch.carlopezzotti.engine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Presents frames on its own thread so rasterization of frame N+1 overlaps the terminal
+// write of frame N. Three buffers rotate between the renderer, a single pending slot and the
+// presenter; a frame still pending when the next one is published is dropped.
+class Presenter implements Runnable {
+    private final Display display;
+    private final BlockingQueue<FrameBuffer> free = new ArrayBlockingQueue<>(2);
+    private final AtomicReference<FrameBuffer> pending = new AtomicReference<>();
+    private volatile Thread thread;
+    private volatile long framesDropped, framesPresented;
+    volatile FrameProfiler profiler;
+
+    Presenter(Display display, int width, int height) {
+        this.display = display;
+        free.add(new FrameBuffer(width, height));
+        free.add(new FrameBuffer(width, height));
+    }
+
+    void start() {
+        Thread t = new Thread(this, "Engine-Presenter");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    long getFramesDropped()   { return framesDropped; }
+    long getFramesPresented() { return framesPresented; }
+
+    // hands a finished frame to the presenter and returns the buffer to render into next
+    FrameBuffer publish(FrameBuffer frame) throws InterruptedException {
+        FrameBuffer stale = pending.getAndSet(frame);
+        if (stale != null) {
+            framesDropped++;
+            return stale;
+        }
+        LockSupport.unpark(thread);
+        return free.take();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                FrameBuffer f = pending.getAndSet(null);
+                if (f == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                long t = System.nanoTime();
+                display.clear();
+                display.draw(f);
+                FrameProfiler p = profiler;
+                if (p != null) p.present(display, System.nanoTime() - t);
+                framesPresented++;
+                free.put(f);
+            }
+        } catch (InterruptedException ignored) {
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
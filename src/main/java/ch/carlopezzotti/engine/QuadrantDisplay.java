@@ -0,0 +1,16 @@
+package ch.carlopezzotti.engine;
+
+// 2x2 pixels per cell as Unicode quadrant blocks
+public class QuadrantDisplay extends CellDisplay {
+    public QuadrantDisplay() {
+        this(false);
+    }
+
+    public QuadrantDisplay(boolean delta) {
+        this(delta, TerminalOutput.stdout());
+    }
+
+    public QuadrantDisplay(boolean delta, TerminalOutput out) {
+        super(CellGlyphs.QUADRANT, delta, out);
+    }
+}
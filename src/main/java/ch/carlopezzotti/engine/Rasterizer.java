@@ -0,0 +1,145 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+import ch.carlopezzotti.engine.Engine.Color;
+import ch.carlopezzotti.engine.Engine.Graphics;
+
+// Graphics backed by a FrameBuffer's colour buffer and, with depth test on, its depth buffer.
+// The depth buffer holds 1/z (0 = empty), which interpolates linearly in screen space.
+class Rasterizer implements Graphics {
+    // guard band: triangles with a vertex farther out are dropped, which keeps every edge
+    // value product below 2^61
+    private static final int GUARD = 1 << 29;
+
+    private byte[] colorBuffer;
+    private float[] depthBuffer;
+    private final int width, height;
+    private byte currentCode = FrameBuffer.encode(Color.WHITE);
+    private boolean depthTest;
+    // inclusive clip rectangle for triangle fills, the whole viewport unless set
+    private int clipMinX, clipMinY, clipMaxX, clipMaxY;
+    private long pixelsWritten;
+
+    Rasterizer(FrameBuffer frame) {
+        this.colorBuffer = frame.colors();
+        this.depthBuffer = frame.depths();
+        this.width  = frame.getWidth();
+        this.height = frame.getHeight();
+        setClip(0, 0, width-1, height-1);
+    }
+
+    // switches to another buffer of the same size
+    void setTarget(FrameBuffer frame) {
+        colorBuffer = frame.colors();
+        depthBuffer = frame.depths();
+    }
+
+    void setDepthTest(boolean on) { depthTest = on; }
+    boolean isDepthTest() { return depthTest; }
+    byte getColorCode() { return currentCode; }
+    // running total of colour writes, for the profiler
+    long getPixelsWritten() { return pixelsWritten; }
+
+    void setClip(int minX, int minY, int maxX, int maxY) {
+        clipMinX = minX; clipMinY = minY;
+        clipMaxX = maxX; clipMaxY = maxY;
+    }
+
+    @Override public void setColor(Color c) { currentCode=FrameBuffer.encode(c); }
+
+    @Override public void setPixel(int x,int y){
+        if(x>=0&&x<width&&y>=0&&y<height){ colorBuffer[y*width+x]=currentCode; pixelsWritten++; }
+    }
+
+    @Override public void drawLine(int x1,int y1,int x2,int y2){
+        int dx=Math.abs(x2-x1), sx=x1<x2?1:-1;
+        int dy=-Math.abs(y2-y1), sy=y1<y2?1:-1;
+        int err=dx+dy;
+        while(true){
+            setPixel(x1,y1);
+            if(x1==x2&&y1==y2) break;
+            int e2=2*err;
+            if(e2>=dy){err+=dy; x1+=sx;}
+            if(e2<=dx){err+=dx; y1+=sy;}
+        }
+    }
+
+    @Override
+    public void fillTriangle(int x1,int y1,int x2,int y2,int x3,int y3){
+        fill(x1,y1,0,x2,y2,0,x3,y3,0,currentCode,false);
+    }
+
+    @Override
+    public void fillTriangle(int x1,int y1,float z1,int x2,int y2,float z2,int x3,int y3,float z3){
+        fill(x1,y1,z1,x2,y2,z2,x3,y3,z3,currentCode,depthTest);
+    }
+
+    // Integer edge-function rasterizer. Each row's covered span is solved from the three
+    // edge functions (top-left fill rule), then written straight into the row arrays.
+    // Edge values are longs, computed from coordinates widened before subtracting, because
+    // near-plane vertices can project far off screen; beyond the guard band they are dropped.
+    // Every pixel is computed from exact integer edge values, so the result does not depend
+    // on the clip rectangle a triangle is split across.
+    void fill(int x1,int y1,float z1,int x2,int y2,float z2,int x3,int y3,float z3,byte c,boolean depth){
+        if(outsideGuard(x1,y1)||outsideGuard(x2,y2)||outsideGuard(x3,y3)) return;
+        long area=((long)x2-x1)*((long)y3-y1)-((long)y2-y1)*((long)x3-x1);
+        if(area==0) return;
+        if(area<0){
+            // make the winding consistent so inside means all edge values >= 0
+            int tx=x2; x2=x3; x3=tx;
+            int ty=y2; y2=y3; y3=ty;
+            float tz=z2; z2=z3; z3=tz;
+            area=-area;
+        }
+        int minX=Math.max(clipMinX,Math.min(x1,Math.min(x2,x3))), maxX=Math.min(clipMaxX,Math.max(x1,Math.max(x2,x3)));
+        int minY=Math.max(clipMinY,Math.min(y1,Math.min(y2,y3))), maxY=Math.min(clipMaxY,Math.max(y1,Math.max(y2,y3)));
+        if(minX>maxX||minY>maxY) return;
+
+        // edge k is opposite vertex k: x-step a, y-step b, threshold t (0 on top/left edges, else 1)
+        long a0=(long)y2-y3, b0=(long)x3-x2; int t0=topLeft(a0,b0)?0:1;
+        long a1=(long)y3-y1, b1=(long)x1-x3; int t1=topLeft(a1,b1)?0:1;
+        long a2=(long)y1-y2, b2=(long)x2-x1; int t2=topLeft(a2,b2)?0:1;
+        long w0=a0*((long)minX-x2)+b0*((long)minY-y2);
+        long w1=a1*((long)minX-x3)+b1*((long)minY-y3);
+        long w2=a2*((long)minX-x1)+b2*((long)minY-y1);
+
+        float inv=1f/area, iz1=depth?1/z1:0, iz2=depth?1/z2:0, iz3=depth?1/z3:0;
+        long written=0;
+        for(int y=minY;y<=maxY;y++,w0+=b0,w1+=b1,w2+=b2){
+            int lo=0, hi=maxX-minX;
+            long r;
+            if(a0>0){ r=-Math.floorDiv(w0-t0,a0); if(r>lo) lo=(int)Math.min(r,hi+1); }
+            else if(a0<0){ r=Math.floorDiv(w0-t0,-a0); if(r<hi) hi=(int)Math.max(r,-1); }
+            else if(w0<t0) continue;
+            if(a1>0){ r=-Math.floorDiv(w1-t1,a1); if(r>lo) lo=(int)Math.min(r,hi+1); }
+            else if(a1<0){ r=Math.floorDiv(w1-t1,-a1); if(r<hi) hi=(int)Math.max(r,-1); }
+            else if(w1<t1) continue;
+            if(a2>0){ r=-Math.floorDiv(w2-t2,a2); if(r>lo) lo=(int)Math.min(r,hi+1); }
+            else if(a2<0){ r=Math.floorDiv(w2-t2,-a2); if(r<hi) hi=(int)Math.max(r,-1); }
+            else if(w2<t2) continue;
+            if(lo>hi) continue;
+
+            int row=y*width, xs=row+minX+lo, xe=row+minX+hi;
+            if(!depth){
+                Arrays.fill(colorBuffer,xs,xe+1,c);
+                written+=xe-xs+1;
+                continue;
+            }
+            long e0=w0+a0*lo, e1=w1+a1*lo, e2=w2+a2*lo;
+            for(int i=xs;i<=xe;i++,e0+=a0,e1+=a1,e2+=a2){
+                float iz=(e0*iz1+e1*iz2+e2*iz3)*inv;
+                if(iz>depthBuffer[i]){ depthBuffer[i]=iz; colorBuffer[i]=c; written++; }
+            }
+        }
+        pixelsWritten+=written;
+    }
+
+    private static boolean outsideGuard(int x, int y) {
+        return x < -GUARD || x > GUARD || y < -GUARD || y > GUARD;
+    }
+
+    private static boolean topLeft(long a, long b) {
+        return a>0 || (a==0 && b>0);
+    }
+}
@@ -0,0 +1,35 @@
+package ch.carlopezzotti.engine;
+
+// Per-frame geometry counters filled by TreeScene while rendering.
+public class RenderStats {
+    public int nodesCulled;
+    public int facesSubmitted;
+    public int facesFrustumCulled;
+    public int facesLodReduced;     // faces saved by drawing a coarser level of detail
+    public int facesBackfaceCulled;
+    public int facesClipped;
+    public int facesDrawn;
+
+    public void reset() {
+        nodesCulled = facesSubmitted = facesFrustumCulled = facesLodReduced = 0;
+        facesBackfaceCulled = facesClipped = facesDrawn = 0;
+    }
+
+    public void copyFrom(RenderStats o) {
+        nodesCulled         = o.nodesCulled;
+        facesSubmitted      = o.facesSubmitted;
+        facesFrustumCulled  = o.facesFrustumCulled;
+        facesLodReduced     = o.facesLodReduced;
+        facesBackfaceCulled = o.facesBackfaceCulled;
+        facesClipped        = o.facesClipped;
+        facesDrawn          = o.facesDrawn;
+    }
+
+    @Override
+    public String toString() {
+        return "faces " + facesDrawn + "/" + facesSubmitted
+             + " (frustum " + facesFrustumCulled + " in " + nodesCulled + " nodes, lod " + facesLodReduced
+             + ", back " + facesBackfaceCulled
+             + ", near " + facesClipped + ")";
+    }
+}
@@ -0,0 +1,33 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+final class ScalarKernels implements Kernels {
+    @Override
+    public void transformProject(float[] m, float fov, float hw, float hh, float[] in, float[] out, int count) {
+        float m0 = m[0], m1 = m[1], m2 = m[2],  m3 = m[3];
+        float m4 = m[4], m5 = m[5], m6 = m[6],  m7 = m[7];
+        float m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11];
+        for (int i = 0, p = 0, o = 0; i < count; i++, p += 3, o += 4) {
+            float x = in[p], y = in[p+1], z = in[p+2];
+            float zp = m8*x + m9*y + m10*z + m11;
+            if (zp <= 1f) { out[o+3] = 1; continue; }
+            float scale = fov / zp;
+            out[o]   = Math.round((m0*x + m1*y + m2*z + m3)*scale + hw);
+            out[o+1] = Math.round((m4*x + m5*y + m6*z + m7)*scale + hh);
+            out[o+2] = zp;
+            out[o+3] = 0;
+        }
+    }
+
+    @Override
+    public void nonZeroBits(byte[] a, int off, int len, long[] bits) {
+        Arrays.fill(bits, 0, (len + 63) >>> 6, 0L);
+        for (int i = 0; i < len; i++) {
+            int p = a[off + i];
+            bits[i >>> 6] |= (long) ((p | -p) >>> 31) << i;
+        }
+    }
+
+    @Override public String name() { return "scalar"; }
+}
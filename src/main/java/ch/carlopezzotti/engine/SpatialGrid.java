@@ -0,0 +1,278 @@
+package ch.carlopezzotti.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+// Uniform hash grid over the world-space bounding spheres of mesh nodes. Each node lives in
+// the cell containing its sphere centre; queries widen their search by the largest radius
+// seen so spheres reaching into neighbouring cells are not missed. Nodes that move are
+// queued through markMoved (any thread) and re-filed by TreeScene on the render thread.
+class SpatialGrid {
+    private static final class Cell {
+        final int cx, cy, cz;
+        final List<Node> nodes = new ArrayList<>();
+        float maxRadius;
+
+        Cell(int cx, int cy, int cz) { this.cx = cx; this.cy = cy; this.cz = cz; }
+
+        // recomputes maxRadius from the nodes; true if it shrank
+        boolean refit() {
+            float r = 0;
+            for (int i = 0; i < nodes.size(); i++) r = Math.max(r, nodes.get(i).worldRadius);
+            boolean shrank = r < maxRadius;
+            maxRadius = r;
+            return shrank;
+        }
+    }
+
+    private final float cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Queue<Node> moved = new ConcurrentLinkedQueue<>();
+    private float maxRadius;
+    private int size;
+    private int queryStamp;
+    // bounds of the occupied cells, to stop expanding searches; they and maxRadius only grow
+    // on insert, and are recomputed before the next query once a removal may shrink them
+    private boolean stale;
+    private int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE, minCz = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE, maxCz = Integer.MIN_VALUE;
+
+    SpatialGrid(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    int size() { return size; }
+
+    void markMoved(Node n) {
+        if (n.indexQueued) return;
+        n.indexQueued = true;
+        moved.add(n);
+    }
+
+    Node pollMoved() {
+        Node n = moved.poll();
+        if (n != null) n.indexQueued = false;
+        return n;
+    }
+
+    // files n under its current world sphere, inserting it if needed
+    void update(Node n, float x, float y, float z, float r) {
+        n.worldX = x; n.worldY = y; n.worldZ = z; n.worldRadius = r;
+        int cx = cell(x), cy = cell(y), cz = cell(z);
+        long key = key(cx, cy, cz);
+        if (n.indexed && n.cellKey == key) {
+            if (cells.get(key).refit()) stale = true;
+        } else {
+            remove(n);
+            Cell c = cells.computeIfAbsent(key, k -> new Cell(cx, cy, cz));
+            c.nodes.add(n);
+            c.maxRadius = Math.max(c.maxRadius, r);
+            n.cellKey = key;
+            n.indexed = true;
+            size++;
+            minCx = Math.min(minCx, cx); maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy); maxCy = Math.max(maxCy, cy);
+            minCz = Math.min(minCz, cz); maxCz = Math.max(maxCz, cz);
+        }
+        maxRadius = Math.max(maxRadius, r);
+    }
+
+    void remove(Node n) {
+        if (!n.indexed) return;
+        Cell c = cells.get(n.cellKey);
+        c.nodes.remove(n);
+        if (c.nodes.isEmpty()) cells.remove(n.cellKey);
+        else c.refit();
+        n.indexed = false;
+        size--;
+        stale = true;
+    }
+
+    private void refreshBounds() {
+        if (!stale) return;
+        stale = false;
+        maxRadius = 0;
+        minCx = minCy = minCz = Integer.MAX_VALUE;
+        maxCx = maxCy = maxCz = Integer.MIN_VALUE;
+        for (Cell c : cells.values()) {
+            maxRadius = Math.max(maxRadius, c.maxRadius);
+            minCx = Math.min(minCx, c.cx); maxCx = Math.max(maxCx, c.cx);
+            minCy = Math.min(minCy, c.cy); maxCy = Math.max(maxCy, c.cy);
+            minCz = Math.min(minCz, c.cz); maxCz = Math.max(maxCz, c.cz);
+        }
+    }
+
+    // nodes whose sphere intersects the sphere (x, y, z, r)
+    void queryRadius(float x, float y, float z, float r, List<Node> out) {
+        refreshBounds();
+        float reach = r + maxRadius;
+        for (int cz = cell(z - reach); cz <= cell(z + reach); cz++)
+            for (int cy = cell(y - reach); cy <= cell(y + reach); cy++)
+                for (int cx = cell(x - reach); cx <= cell(x + reach); cx++) {
+                    Cell c = cells.get(key(cx, cy, cz));
+                    if (c == null) continue;
+                    for (Node n : c.nodes) {
+                        float d = r + n.worldRadius;
+                        if (dist2(n, x, y, z) <= d * d) out.add(n);
+                    }
+                }
+    }
+
+    // nodes whose sphere may be visible with the engine's current view
+    void queryFrustum(Engine engine, List<Node> out) {
+        float half = cellSize * 0.5f, cellRadius = cellSize * 0.8660254f;
+        for (Cell c : cells.values()) {
+            if (!engine.isSphereVisible(c.cx * cellSize + half, c.cy * cellSize + half, c.cz * cellSize + half,
+                                        cellRadius + c.maxRadius))
+                continue;
+            for (Node n : c.nodes)
+                if (engine.isSphereVisible(n.worldX, n.worldY, n.worldZ, n.worldRadius)) out.add(n);
+        }
+    }
+
+    // The k nodes with the closest centres, nearest first. Rings of cells are searched
+    // outwards, walking only each ring's shell; once a shell holds more cells than are
+    // occupied, the remaining search is a plain scan of the occupied cells instead.
+    void queryNearest(float x, float y, float z, int k, Predicate<Node> filter, List<Node> out) {
+        if (k <= 0 || size == 0) return;
+        refreshBounds();
+        PriorityQueue<Node> best = new PriorityQueue<>(k, (a, b) -> Float.compare(dist2(b, x, y, z), dist2(a, x, y, z)));
+        int px = cell(x), py = cell(y), pz = cell(z);
+        int maxRing = Math.max(Math.max(Math.max(px - minCx, maxCx - px), Math.max(py - minCy, maxCy - py)),
+                               Math.max(pz - minCz, maxCz - pz));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least (ring - 1) cells away from the query point
+            if (best.size() == k) {
+                float bound = (ring - 1) * cellSize;
+                if (bound > 0 && bound * bound > dist2(best.peek(), x, y, z)) break;
+            }
+            long side = 2L * ring + 1, shell = side * side * side - (side - 2) * (side - 2) * (side - 2);
+            if (ring > 0 && shell > cells.size()) {
+                best.clear();
+                for (Cell c : cells.values()) offer(c, x, y, z, k, filter, best);
+                break;
+            }
+            for (int dz = -ring; dz <= ring; dz++)
+                for (int dy = -ring; dy <= ring; dy++) {
+                    // inside the shell only the two end cells of the row belong to it
+                    boolean face = Math.abs(dz) == ring || Math.abs(dy) == ring;
+                    for (int dx = -ring; dx <= ring; dx += face || ring == 0 ? 1 : 2 * ring) {
+                        Cell c = cells.get(key(px + dx, py + dy, pz + dz));
+                        if (c != null) offer(c, x, y, z, k, filter, best);
+                    }
+                }
+        }
+        int start = out.size();
+        while (!best.isEmpty()) out.add(start, best.poll());
+    }
+
+    private static void offer(Cell c, float x, float y, float z, int k, Predicate<Node> filter, PriorityQueue<Node> best) {
+        for (int i = 0; i < c.nodes.size(); i++) {
+            Node n = c.nodes.get(i);
+            if (filter != null && !filter.test(n)) continue;
+            if (best.size() < k) best.add(n);
+            else if (dist2(n, x, y, z) < dist2(best.peek(), x, y, z)) { best.poll(); best.add(n); }
+        }
+    }
+
+    // Nearest node whose sphere the ray hits within maxDist; (dx, dy, dz) must be normalized.
+    // The ray is clipped to the occupied cells widened by the search reach, and the 3D-DDA
+    // starts at the entry cell, so origins outside the cluster still find it. The walk ends
+    // when it leaves that box, which a ray inside a box only does once.
+    Node raycast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDist) {
+        if (size == 0) return null;
+        refreshBounds();
+        int reach = (int) Math.ceil(maxRadius / cellSize);
+        float loX = (minCx - reach) * cellSize, hiX = (maxCx + reach + 1) * cellSize;
+        float loY = (minCy - reach) * cellSize, hiY = (maxCy + reach + 1) * cellSize;
+        float loZ = (minCz - reach) * cellSize, hiZ = (maxCz + reach + 1) * cellSize;
+        float t = Math.max(0, Math.max(enter(ox, dx, loX, hiX), Math.max(enter(oy, dy, loY, hiY), enter(oz, dz, loZ, hiZ))));
+        float exit = Math.min(exit(ox, dx, loX, hiX), Math.min(exit(oy, dy, loY, hiY), exit(oz, dz, loZ, hiZ)));
+        if (t > exit || t > maxDist) return null;
+
+        int cx = clamp(cell(ox + dx * t), minCx - reach, maxCx + reach);
+        int cy = clamp(cell(oy + dy * t), minCy - reach, maxCy + reach);
+        int cz = clamp(cell(oz + dz * t), minCz - reach, maxCz + reach);
+        int sx = dx > 0 ? 1 : -1, sy = dy > 0 ? 1 : -1, sz = dz > 0 ? 1 : -1;
+        // ray distance to the next cell boundary on each axis, and per-cell increments
+        float tx = dx == 0 ? Float.POSITIVE_INFINITY : ((cx + (sx > 0 ? 1 : 0)) * cellSize - ox) / dx;
+        float ty = dy == 0 ? Float.POSITIVE_INFINITY : ((cy + (sy > 0 ? 1 : 0)) * cellSize - oy) / dy;
+        float tz = dz == 0 ? Float.POSITIVE_INFINITY : ((cz + (sz > 0 ? 1 : 0)) * cellSize - oz) / dz;
+        float ix = Math.abs(cellSize / dx), iy = Math.abs(cellSize / dy), iz = Math.abs(cellSize / dz);
+        float slack = (reach + 1) * cellSize * 1.7320508f;
+
+        int stamp = ++queryStamp;   // marks the nodes this query has tested
+        Node hit = null;
+        float hitT = maxDist;
+        while (t <= Math.min(maxDist, hitT + slack) && inBounds(cx, cy, cz, reach)) {
+            for (int z = cz - reach; z <= cz + reach; z++)
+                for (int y = cy - reach; y <= cy + reach; y++)
+                    for (int x = cx - reach; x <= cx + reach; x++) {
+                        Cell c = cells.get(key(x, y, z));
+                        if (c == null) continue;
+                        for (int i = 0, n = c.nodes.size(); i < n; i++) {
+                            Node node = c.nodes.get(i);
+                            if (node.queryStamp == stamp) continue;
+                            node.queryStamp = stamp;
+                            float th = raySphere(node, ox, oy, oz, dx, dy, dz);
+                            if (th >= 0 && th <= hitT) { hitT = th; hit = node; }
+                        }
+                    }
+            if (tx <= ty && tx <= tz) { t = tx; tx += ix; cx += sx; }
+            else if (ty <= tz)        { t = ty; ty += iy; cy += sy; }
+            else                      { t = tz; tz += iz; cz += sz; }
+        }
+        return hit;
+    }
+
+    // ray parameter where it enters / leaves the slab [lo, hi) of one axis
+    private static float enter(float o, float d, float lo, float hi) {
+        if (d == 0) return o >= lo && o < hi ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+        return Math.min((lo - o) / d, (hi - o) / d);
+    }
+
+    private static float exit(float o, float d, float lo, float hi) {
+        if (d == 0) return o >= lo && o < hi ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+        return Math.max((lo - o) / d, (hi - o) / d);
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private boolean inBounds(int cx, int cy, int cz, int reach) {
+        return cx >= minCx - reach && cx <= maxCx + reach
+            && cy >= minCy - reach && cy <= maxCy + reach
+            && cz >= minCz - reach && cz <= maxCz + reach;
+    }
+
+    private static float raySphere(Node n, float ox, float oy, float oz, float dx, float dy, float dz) {
+        float lx = n.worldX - ox, ly = n.worldY - oy, lz = n.worldZ - oz;
+        float tca = lx * dx + ly * dy + lz * dz;
+        float d2 = lx * lx + ly * ly + lz * lz - tca * tca;
+        float r2 = n.worldRadius * n.worldRadius;
+        if (d2 > r2) return -1;
+        float thc = (float) Math.sqrt(r2 - d2);
+        if (tca + thc < 0) return -1;
+        return Math.max(0, tca - thc);
+    }
+
+    private static float dist2(Node n, float x, float y, float z) {
+        float dx = n.worldX - x, dy = n.worldY - y, dz = n.worldZ - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cell(float v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static long key(int cx, int cy, int cz) {
+        return ((long) (cx & 0x1FFFFF) << 42) | ((long) (cy & 0x1FFFFF) << 21) | (cz & 0x1FFFFF);
+    }
+}
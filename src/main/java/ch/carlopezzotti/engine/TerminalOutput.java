@@ -0,0 +1,159 @@
+package ch.carlopezzotti.engine;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import ch.carlopezzotti.engine.Engine.Color;
+
+// Encodes terminal output into reused direct buffers and writes it to a channel in one
+// gathering write per flush: a short prefix (cursor home / screen clear) and the frame body.
+// Braille glyphs and colour escapes are pre-encoded to UTF-8. Not thread-safe.
+public class TerminalOutput {
+    private static final byte[] BRAILLE = new byte[256 * 3];
+    private static final byte[][] SGR = new byte[Color.values().length][];
+    private static final byte[][] SGR_BACKGROUND = new byte[Color.values().length][];
+    private static TerminalOutput stdout;
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            // U+2800 + b
+            BRAILLE[b * 3]     = (byte) 0xE2;
+            BRAILLE[b * 3 + 1] = (byte) (0xA0 | (b >> 6));
+            BRAILLE[b * 3 + 2] = (byte) (0x80 | (b & 0x3F));
+        }
+        for (Color c : Color.values()) {
+            SGR[c.ordinal()] = c.toString().getBytes(StandardCharsets.US_ASCII);
+            // background SGR is the foreground one plus 10 (30-37 -> 40-47, 90-97 -> 100-107);
+            // RESET -> default background
+            String fg = c.toString();
+            String bg = c == Color.RESET ? "\u001B[49m"
+                : "\u001B[" + (Integer.parseInt(fg.substring(2, fg.length() - 1)) + 10) + "m";
+            SGR_BACKGROUND[c.ordinal()] = bg.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final GatheringByteChannel channel;
+    private ByteBuffer prefix = ByteBuffer.allocateDirect(64);
+    private ByteBuffer body = ByteBuffer.allocateDirect(16 * 1024);
+    private final ByteBuffer[] gather = new ByteBuffer[2];
+    private final byte[] digits = new byte[10];
+    private long bytesWritten;
+
+    public TerminalOutput(GatheringByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // shared output on the process's stdout file descriptor
+    public static synchronized TerminalOutput stdout() {
+        if (stdout == null) stdout = new TerminalOutput(new FileOutputStream(FileDescriptor.out).getChannel());
+        return stdout;
+    }
+
+    public long getBytesWritten() { return bytesWritten; }
+
+    // escape sequence written ahead of the body on the next flush
+    public TerminalOutput prefix(String ascii) {
+        prefix = putAscii(prefix, ascii);
+        return this;
+    }
+
+    public TerminalOutput ascii(String s) {
+        body = putAscii(body, s);
+        return this;
+    }
+
+    public TerminalOutput ascii(char c) {
+        ensure(1);
+        body.put((byte) c);
+        return this;
+    }
+
+    public TerminalOutput braille(int dots) {
+        ensure(3);
+        body.put(BRAILLE, (dots & 0xFF) * 3, 3);
+        return this;
+    }
+
+    // pre-encoded glyph bytes, e.g. from a lookup table
+    public TerminalOutput glyph(byte[] utf8) {
+        ensure(utf8.length);
+        body.put(utf8);
+        return this;
+    }
+
+    // background colour; null or RESET selects the terminal's default background
+    public TerminalOutput background(Color c) {
+        byte[] sgr = SGR_BACKGROUND[(c == null ? Color.RESET : c).ordinal()];
+        ensure(sgr.length);
+        body.put(sgr);
+        return this;
+    }
+
+    public TerminalOutput color(Color c) {
+        byte[] sgr = SGR[c.ordinal()];
+        ensure(sgr.length);
+        body.put(sgr);
+        return this;
+    }
+
+    // absolute cursor move, 0-based row and column
+    public TerminalOutput moveTo(int row, int col) {
+        ensure(2 + 10 + 1 + 10 + 1);
+        body.put((byte) 0x1B).put((byte) '[');
+        putInt(row + 1);
+        body.put((byte) ';');
+        putInt(col + 1);
+        body.put((byte) 'H');
+        return this;
+    }
+
+    // writes prefix and body with a single gathering write; returns the bytes written
+    public int flush() {
+        prefix.flip();
+        body.flip();
+        gather[0] = prefix;
+        gather[1] = body;
+        int total = prefix.remaining() + body.remaining();
+        try {
+            while (prefix.hasRemaining() || body.hasRemaining()) channel.write(gather);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            prefix.clear();
+            body.clear();
+        }
+        bytesWritten += total;
+        return total;
+    }
+
+    private void putInt(int v) {
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        while (n > 0) body.put(digits[--n]);
+    }
+
+    private ByteBuffer putAscii(ByteBuffer buf, String s) {
+        buf = ensure(buf, s.length());
+        for (int i = 0; i < s.length(); i++) buf.put((byte) s.charAt(i));
+        return buf;
+    }
+
+    private void ensure(int n) {
+        body = ensure(body, n);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buf, int n) {
+        if (buf.remaining() >= n) return buf;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buf.capacity() * 2, buf.position() + n));
+        buf.flip();
+        return bigger.put(buf);
+    }
+}
@@ -0,0 +1,136 @@
+package ch.carlopezzotti.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ch.carlopezzotti.engine.Engine.Color;
+import ch.carlopezzotti.engine.Engine.Graphics;
+
+// Graphics that defers triangle fills: triangles are recorded, binned into screen tiles and
+// rasterized tile by tile on an executor when flush() is called. Tiles cover disjoint pixels,
+// so they write the shared buffers without locking, and each tile replays its triangles in
+// submission order, which makes the output identical to drawing them directly.
+class TileRenderer implements Graphics {
+    static final int TILE = 32;
+
+    private final Rasterizer direct;
+    private final ExecutorService executor;
+    private final int width, height, tilesX, tilesY;
+    private final Rasterizer[] tileRasters;
+    private final List<Callable<Void>> tasks = new ArrayList<>();
+
+    // recorded triangles: 6 coords, 3 depths, colour code and depth-test flag each
+    private int[] xy = new int[6 * 256];
+    private float[] z = new float[3 * 256];
+    private byte[] colors = new byte[256];
+    private boolean[] depth = new boolean[256];
+    private int count;
+
+    // per-tile lists of triangle indices
+    private final int[][] bins;
+    private final int[] binCounts;
+
+    TileRenderer(Rasterizer direct, FrameBuffer frame, ExecutorService executor) {
+        this.direct = direct;
+        this.executor = executor;
+        this.width = frame.getWidth();
+        this.height = frame.getHeight();
+        this.tilesX = (width + TILE - 1) / TILE;
+        this.tilesY = (height + TILE - 1) / TILE;
+        int tiles = tilesX * tilesY;
+        this.tileRasters = new Rasterizer[tiles];
+        this.bins = new int[tiles][64];
+        this.binCounts = new int[tiles];
+        for (int t = 0; t < tiles; t++) {
+            int tx = (t % tilesX) * TILE, ty = (t / tilesX) * TILE;
+            Rasterizer r = new Rasterizer(frame);
+            r.setClip(tx, ty, Math.min(width, tx + TILE) - 1, Math.min(height, ty + TILE) - 1);
+            tileRasters[t] = r;
+            final int tile = t;
+            tasks.add(() -> { rasterizeTile(tile); return null; });
+        }
+    }
+
+    // colour writes of all tiles so far; read after flush()
+    long getPixelsWritten() {
+        long n = 0;
+        for (Rasterizer r : tileRasters) n += r.getPixelsWritten();
+        return n;
+    }
+
+    void setTarget(FrameBuffer frame) {
+        for (Rasterizer r : tileRasters) r.setTarget(frame);
+    }
+
+    @Override public void setColor(Color c) { direct.setColor(c); }
+
+    @Override public void setPixel(int x, int y) { flush(); direct.setPixel(x, y); }
+
+    @Override public void drawLine(int x1, int y1, int x2, int y2) { flush(); direct.drawLine(x1, y1, x2, y2); }
+
+    @Override
+    public void fillTriangle(int x1, int y1, int x2, int y2, int x3, int y3) {
+        record(x1, y1, 0, x2, y2, 0, x3, y3, 0, false);
+    }
+
+    @Override
+    public void fillTriangle(int x1, int y1, float z1, int x2, int y2, float z2, int x3, int y3, float z3) {
+        record(x1, y1, z1, x2, y2, z2, x3, y3, z3, direct.isDepthTest());
+    }
+
+    private void record(int x1, int y1, float z1, int x2, int y2, float z2, int x3, int y3, float z3, boolean d) {
+        int minX = Math.max(0, Math.min(x1, Math.min(x2, x3))), maxX = Math.min(width - 1, Math.max(x1, Math.max(x2, x3)));
+        int minY = Math.max(0, Math.min(y1, Math.min(y2, y3))), maxY = Math.min(height - 1, Math.max(y1, Math.max(y2, y3)));
+        if (minX > maxX || minY > maxY) return;
+
+        if (count == colors.length) {
+            int n = count * 2;
+            xy = Arrays.copyOf(xy, 6 * n);
+            z = Arrays.copyOf(z, 3 * n);
+            colors = Arrays.copyOf(colors, n);
+            depth = Arrays.copyOf(depth, n);
+        }
+        int i = count++;
+        xy[6*i] = x1; xy[6*i+1] = y1; xy[6*i+2] = x2; xy[6*i+3] = y2; xy[6*i+4] = x3; xy[6*i+5] = y3;
+        z[3*i] = z1; z[3*i+1] = z2; z[3*i+2] = z3;
+        colors[i] = direct.getColorCode();
+        depth[i] = d;
+
+        for (int ty = minY / TILE; ty <= maxY / TILE; ty++) {
+            for (int tx = minX / TILE; tx <= maxX / TILE; tx++) {
+                int t = ty * tilesX + tx;
+                if (binCounts[t] == bins[t].length) bins[t] = Arrays.copyOf(bins[t], binCounts[t] * 2);
+                bins[t][binCounts[t]++] = i;
+            }
+        }
+    }
+
+    // rasterizes everything recorded so far and waits for all tiles to finish
+    void flush() {
+        if (count == 0) return;
+        try {
+            for (Future<Void> f : executor.invokeAll(tasks)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        count = 0;
+        Arrays.fill(binCounts, 0);
+    }
+
+    private void rasterizeTile(int t) {
+        Rasterizer r = tileRasters[t];
+        int[] bin = bins[t];
+        for (int k = 0, n = binCounts[t]; k < n; k++) {
+            int i = bin[k];
+            r.fill(xy[6*i], xy[6*i+1], z[3*i], xy[6*i+2], xy[6*i+3], z[3*i+1], xy[6*i+4], xy[6*i+5], z[3*i+2],
+                   colors[i], depth[i]);
+        }
+    }
+}
@@ -1,25 +1,159 @@
 package ch.carlopezzotti.engine;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
 import ch.carlopezzotti.engine.Engine.Graphics;
 import ch.carlopezzotti.engine.helper.Transform;
 import ch.carlopezzotti.engine.helper.Vector3;
 
 public class TreeScene {
+    // screen-space vertex buffer, one entry per vertex: x, y, depth, clipped flag
+    private static final int STRIDE = 4;
+
+    // only touched by the owner thread; other threads go through the command queue
     private final List<Node> nodes = new ArrayList<>();
+    private final Set<Node> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final SpatialGrid index = new SpatialGrid(8f);
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private volatile Thread owner;
+    private float[] screen = new float[0];
+    private final float[] model = new float[12], instance = new float[12];
+    private final float[] bounds = new float[4], meshBounds = new float[4];
 
+    // Adds and removes run immediately on the owner (render) thread, or before one is bound;
+    // from any other thread they are queued and applied at the start of the next frame.
     public void addNode(Node node) {
-        if (!nodes.contains(node)) nodes.add(node);
+        post(() -> {
+            if (roots.add(node)) {
+                nodes.add(node);
+                node.attachIndex(index);
+            }
+        });
     }
 
     public void removeNode(Node node) {
-        nodes.remove(node);
-        for (Node c : node.getChildren()) removeNode(c);
+        post(() -> removeNow(node));
+    }
+
+    // runs a scene edit on the owner thread, at the next frame boundary when called elsewhere
+    public void post(Runnable edit) {
+        Thread t = owner;
+        if (t == null || t == Thread.currentThread()) edit.run();
+        else commands.add(edit);
+    }
+
+    // binds the scene to the calling thread and applies queued edits; called once per frame
+    void applyPending() {
+        owner = Thread.currentThread();
+        for (Runnable r; (r = commands.poll()) != null; ) r.run();
+    }
+
+    // nodes at the root of the scene; read it on the render thread only
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    private void removeNow(Node node) {
+        if (roots.remove(node)) nodes.remove(node);
+        if (node.grid != null) index.markMoved(node);
+        for (Node c : node.childArray()) removeNow(c);
+    }
+
+    // Spatial queries over the world bounding spheres of mesh nodes. Call them on the render
+    // thread, e.g. from a render callback or through post().
+
+    public List<Node> queryRadius(Vector3 center, float radius) {
+        refreshIndex();
+        List<Node> out = new ArrayList<>();
+        index.queryRadius(center.x, center.y, center.z, radius, out);
+        return out;
+    }
+
+    public List<Node> queryFrustum(Engine engine) {
+        refreshIndex();
+        List<Node> out = new ArrayList<>();
+        index.queryFrustum(engine, out);
+        return out;
+    }
+
+    // up to k nodes ordered by distance of their centre from p
+    public List<Node> queryNearest(Vector3 p, int k) {
+        return queryNearest(p, k, null);
+    }
+
+    public List<Node> queryNearest(Vector3 p, int k, Predicate<Node> filter) {
+        refreshIndex();
+        List<Node> out = new ArrayList<>();
+        index.queryNearest(p.x, p.y, p.z, k, filter, out);
+        return out;
+    }
+
+    public Node nearest(Vector3 p, Predicate<Node> filter) {
+        List<Node> out = queryNearest(p, 1, filter);
+        return out.isEmpty() ? null : out.get(0);
+    }
+
+    // closest node whose bounding sphere is hit by the ray, or null
+    public Node raycast(Vector3 origin, Vector3 direction, float maxDist) {
+        refreshIndex();
+        Vector3 d = direction.normalize();
+        return index.raycast(origin.x, origin.y, origin.z, d.x, d.y, d.z, maxDist);
+    }
+
+    // re-files the nodes that moved, changed mesh or were attached/detached since last time
+    private void refreshIndex() {
+        for (Node n; (n = index.pollMoved()) != null; ) {
+            if (!isAttached(n)) {
+                detach(n);
+                continue;
+            }
+            if (!n.localBounds(bounds)) {
+                index.remove(n);
+                continue;
+            }
+            Transform gt = n.getGlobalTransform();
+            Vector3 c = gt.apply(new Vector3(bounds[0], bounds[1], bounds[2]));
+            index.update(n, c.x, c.y, c.z, bounds[3] * Math.abs(gt.scale.x));
+        }
+    }
+
+    private boolean isAttached(Node n) {
+        while (n.getParent() != null) n = n.getParent();
+        return roots.contains(n);
+    }
+
+    private void detach(Node n) {
+        index.remove(n);
+        n.grid = null;
+        for (Node c : n.childArray()) if (c.grid != null && !isAttached(c)) detach(c);
+    }
+
+    // steps every node's auto-update behaviour by dtNanos of engine time
+    public void update(long dtNanos) {
+        for (int i = 0; i < nodes.size(); i++) update(nodes.get(i), dtNanos);
+    }
+
+    private void update(Node n, long dtNanos) {
+        n.tick(dtNanos);
+        for (Node c : n.childArray()) update(c, dtNanos);
     }
 
     public void renderAll(Engine engine, Graphics g, int w, int h) {
+        refreshIndex();
+        if (engine.isDepthTest()) {
+            // the depth buffer resolves visibility per pixel, no ordering needed
+            for (int i = 0; i < nodes.size(); i++) renderNode(engine, g, w, h, nodes.get(i));
+            return;
+        }
+        FrameProfiler prof = engine.getProfiler();
+        long start = prof != null ? System.nanoTime() : 0;
         List<Node> sorted = new ArrayList<>(nodes);
         Vector3 camPos = engine.getCamera().getGlobalTransform().position;
         sorted.sort(Comparator.comparingDouble(n -> {
@@ -29,23 +163,114 @@ public class TreeScene {
             double dz = pos.z - camPos.z;
             return -(dx*dx + dy*dy + dz*dz);
         }));
+        if (prof != null) prof.addSort(System.nanoTime() - start);
         for (Node n : sorted) renderNode(engine, g, w, h, n);
     }
 
-    
-    public List<Node> getNodes() {
-        return nodes;
+    private void renderNode(Engine engine, Graphics g, int w, int h, Node n) {
+        if (n.localBounds(bounds)) {
+            RenderStats stats = engine.frameStats();
+            Transform gt = n.getGlobalTransform();
+            gt.toMatrix(model);
+            float scale = Math.abs(gt.scale.x);
+            if (n instanceof InstancedNode) {
+                drawInstances(engine, g, (InstancedNode) n, scale, stats);
+            } else {
+                Mesh mesh = n.getMesh();
+                stats.facesSubmitted += mesh.triangleCount();
+                if (n.isFrustumCulling() && !isVisible(engine, model, bounds, scale)) {
+                    stats.nodesCulled++;
+                    stats.facesFrustumCulled += mesh.triangleCount();
+                } else {
+                    LodMesh lod = n.getLod();
+                    if (lod != null && lod.base() == mesh) {
+                        n.lodLevel = lod.select(n.lodLevel, projectedRadius(engine, model, bounds, scale));
+                        Mesh m = lod.level(n.lodLevel);
+                        stats.facesLodReduced += mesh.triangleCount() - m.triangleCount();
+                        mesh = m;
+                    }
+                    drawMesh(engine, g, model, n.getColor(), mesh, n.isBackfaceCulling(), stats);
+                }
+            }
+        }
+        for (Node c : n.childArray()) renderNode(engine, g, w, h, c);
     }
 
-    private void renderNode(Engine engine, Graphics g, int w, int h, Node n) {
-        g.setColor(n.getColor());
-        for (int[] f : n.getFaces()) {
-            int[] p1 = n.projectVertex(engine, n.getVertices().get(f[0]));
-            int[] p2 = n.projectVertex(engine, n.getVertices().get(f[1]));
-            int[] p3 = n.projectVertex(engine, n.getVertices().get(f[2]));
-            if (p1 != null && p2 != null && p3 != null)
-                g.fillTriangle(p1[0], p1[1], p2[0], p2[1], p3[0], p3[1]);
+    // Draws every instance with the shared mesh: the whole batch is culled by the sphere
+    // around all instances, then each instance by its own sphere.
+    private void drawInstances(Engine engine, Graphics g, InstancedNode n, float nodeScale, RenderStats stats) {
+        Mesh mesh = n.getMesh();
+        int tris = mesh.triangleCount(), count = n.getInstanceCount();
+        stats.facesSubmitted += tris * count;
+        boolean cull = n.isFrustumCulling();
+        if (cull && !isVisible(engine, model, bounds, nodeScale)) {
+            stats.nodesCulled++;
+            stats.facesFrustumCulled += tris * count;
+            return;
+        }
+        float[] local = n.matrices();
+        meshBounds[0] = mesh.boundX(); meshBounds[1] = mesh.boundY();
+        meshBounds[2] = mesh.boundZ(); meshBounds[3] = mesh.boundRadius();
+        for (int i = 0; i < count; i++) {
+            Transform.multiply(model, local, 12 * i, instance);
+            if (cull && !isVisible(engine, instance, meshBounds, nodeScale * Math.abs(n.getInstanceScale(i)))) {
+                stats.facesFrustumCulled += tris;
+                continue;
+            }
+            drawMesh(engine, g, instance, n.getInstanceColor(i), mesh, n.isBackfaceCulling(), stats);
+        }
+    }
+
+    // sphere (x, y, z, r) in model space, moved to world space by the model matrix m
+    private static boolean isVisible(Engine engine, float[] m, float[] sphere, float scale) {
+        float x = sphere[0], y = sphere[1], z = sphere[2];
+        return engine.isSphereVisible(
+            m[0]*x + m[1]*y + m[2]*z  + m[3],
+            m[4]*x + m[5]*y + m[6]*z  + m[7],
+            m[8]*x + m[9]*y + m[10]*z + m[11],
+            sphere[3] * scale);
+    }
+
+    private static float projectedRadius(Engine engine, float[] m, float[] sphere, float scale) {
+        float x = sphere[0], y = sphere[1], z = sphere[2];
+        return engine.projectedRadius(
+            m[0]*x + m[1]*y + m[2]*z  + m[3],
+            m[4]*x + m[5]*y + m[6]*z  + m[7],
+            m[8]*x + m[9]*y + m[10]*z + m[11],
+            sphere[3] * scale);
+    }
+
+    private void drawMesh(Engine engine, Graphics g, float[] m, Engine.Color color, Mesh mesh,
+                          boolean backface, RenderStats stats) {
+        transformVertices(engine, m, mesh);
+        g.setColor(color);
+        int[] idx = mesh.indices();
+        for (int i = 0; i < idx.length; i += 3) {
+            int a = idx[i] * STRIDE, b = idx[i+1] * STRIDE, c = idx[i+2] * STRIDE;
+            if (screen[a+3] != 0 || screen[b+3] != 0 || screen[c+3] != 0) {
+                stats.facesClipped++;
+                continue;
+            }
+            // counter-clockwise faces end up with negative area on the y-down screen
+            if (backface && (screen[b]-screen[a])*(screen[c+1]-screen[a+1])
+                          - (screen[b+1]-screen[a+1])*(screen[c]-screen[a]) >= 0) {
+                stats.facesBackfaceCulled++;
+                continue;
+            }
+            g.fillTriangle((int)screen[a], (int)screen[a+1], screen[a+2],
+                           (int)screen[b], (int)screen[b+1], screen[b+2],
+                           (int)screen[c], (int)screen[c+1], screen[c+2]);
+            stats.facesDrawn++;
         }
-        for (Node c : n.getChildren()) renderNode(engine, g, w, h, c);
     }
-}
\ No newline at end of file
+
+    // projects every vertex of the node once; the face loop then indexes the buffer
+    private void transformVertices(Engine engine, float[] m, Mesh mesh) {
+        int count = mesh.vertexCount();
+        if (screen.length < count * STRIDE) screen = new float[count * STRIDE];
+        FrameProfiler prof = engine.getProfiler();
+        long start = prof != null ? System.nanoTime() : 0;
+        engine.project(m, mesh.positions(), screen, count);
+        if (prof != null) prof.addTransform(System.nanoTime() - start);
+    }
+}
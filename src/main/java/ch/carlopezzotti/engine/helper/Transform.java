@@ -29,4 +29,34 @@ public class Transform {
                 .rotateZ((float) rotation.z);
         return vr.add(position);
     }
+
+    // fills m with the row-major 3x4 matrix equivalent to apply() (X, then Y, then Z rotation)
+    public void toMatrix(float[] m) {
+        toMatrix(position.x, position.y, position.z, rotation.x, rotation.y, rotation.z, scale.x, m, 0);
+    }
+
+    public static void toMatrix(float px, float py, float pz, float rx, float ry, float rz, float s,
+                                float[] m, int off) {
+        float cx = (float) Math.cos(rx), sx = (float) Math.sin(rx);
+        float cy = (float) Math.cos(ry), sy = (float) Math.sin(ry);
+        float cz = (float) Math.cos(rz), sz = (float) Math.sin(rz);
+        m[off]   = cz*cy*s; m[off+1] = (cz*sy*sx - sz*cx)*s; m[off+2]  = (cz*sy*cx + sz*sx)*s; m[off+3]  = px;
+        m[off+4] = sz*cy*s; m[off+5] = (sz*sy*sx + cz*cx)*s; m[off+6]  = (sz*sy*cx - cz*sx)*s; m[off+7]  = py;
+        m[off+8] = -sy*s;   m[off+9] = cy*sx*s;              m[off+10] = cy*cx*s;              m[off+11] = pz;
+    }
+
+    // out = a * b for row-major 3x4 affine matrices; out must not alias a or b
+    public static void multiply(float[] a, float[] b, float[] out) {
+        multiply(a, b, 0, out);
+    }
+
+    // same, with b read from b[bo..bo+11]
+    public static void multiply(float[] a, float[] b, int bo, float[] out) {
+        for (int r = 0; r < 12; r += 4) {
+            for (int c = 0; c < 4; c++) {
+                out[r + c] = a[r] * b[bo + c] + a[r + 1] * b[bo + 4 + c] + a[r + 2] * b[bo + 8 + c];
+            }
+            out[r + 3] += a[r + 3];
+        }
+    }
 }
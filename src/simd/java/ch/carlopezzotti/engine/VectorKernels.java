@@ -0,0 +1,152 @@
+package ch.carlopezzotti.engine;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD kernels, built only with -P simd (src/simd/java) and only loaded when
+// jdk.incubator.vector is in the boot layer (see Kernels).
+// Projection runs the same multiplies and adds, in the same order, as the scalar code (no
+// fused multiply-add) and rounds like Math.round, so results are bit-identical.
+final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> B = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> L = B.withLanes(long.class);
+    private static final long GATHER = 0x0102040810204080L;
+    private static final LongVector LANE_SHIFT = LongVector.zero(L).addIndex(8);
+    private static final FloatVector ZERO = FloatVector.zero(F), HALF = FloatVector.broadcast(F, 0.5f),
+        ONE = FloatVector.broadcast(F, 1f), BIG = FloatVector.broadcast(F, 0x1p23f),
+        INT_MIN = FloatVector.broadcast(F, -0x1p31f), INT_MAX = FloatVector.broadcast(F, 0x1p31f);
+
+    // De-interleaving packed xyz: three consecutive vectors hold n = F.length() points, and
+    // component c of point k sits at flat index 3k + c, in vector (3k + c) / n at lane (3k + c) % n.
+    // SPLIT[c] moves every lane to its place, PART[c][j] selects the lanes coming from vector j.
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final VectorShuffle<Float>[] SPLIT = new VectorShuffle[3];
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final VectorMask<Float>[][] PART = new VectorMask[3][3];
+
+    static {
+        int l = F.length();
+        for (int c = 0; c < 3; c++) {
+            int[] idx = new int[l];
+            boolean[][] from = new boolean[3][l];
+            for (int k = 0; k < l; k++) {
+                idx[k] = (3 * k + c) % l;
+                from[(3 * k + c) / l][k] = true;
+            }
+            SPLIT[c] = VectorShuffle.fromArray(F, idx, 0);
+            for (int j = 0; j < 3; j++) PART[c][j] = VectorMask.fromArray(F, from[j], 0);
+        }
+    }
+
+    // per-thread planar scratch: projected x, y and depth of each point
+    private final ThreadLocal<float[][]> scratch = ThreadLocal.withInitial(() -> new float[3][0]);
+
+    // Three passes, each small enough for C2 to compile without leaving vector calls out of
+    // line (vectors boxed across a call allocate): transform into the planar scratch, round
+    // x and y in place, interleave into out.
+    @Override
+    public void transformProject(float[] m, float fov, float hw, float hh, float[] in, float[] out, int count) {
+        float[][] s = scratch.get();
+        if (s[0].length < count) {
+            int n = F.loopBound(count) + F.length();
+            for (int k = 0; k < 3; k++) s[k] = new float[n];
+        }
+        float[] px = s[0], py = s[1], pz = s[2];
+        int bound = F.loopBound(count);
+        transform(m, fov, hw, hh, in, px, py, pz, bound);
+        round(px, bound);
+        round(py, bound);
+        for (int i = 0, o = 0; i < bound; i++, o += 4) {
+            if (pz[i] <= 1f) { out[o+3] = 1; continue; }
+            out[o]   = px[i];
+            out[o+1] = py[i];
+            out[o+2] = pz[i];
+            out[o+3] = 0;
+        }
+        if (bound < count) tail(m, fov, hw, hh, in, out, bound, count);
+    }
+
+    private static void transform(float[] m, float fov, float hw, float hh, float[] in,
+                                  float[] px, float[] py, float[] pz, int bound) {
+        FloatVector vfov = FloatVector.broadcast(F, fov), vhw = FloatVector.broadcast(F, hw), vhh = FloatVector.broadcast(F, hh);
+        FloatVector m0 = FloatVector.broadcast(F, m[0]), m1 = FloatVector.broadcast(F, m[1]), m2  = FloatVector.broadcast(F, m[2]),  m3  = FloatVector.broadcast(F, m[3]);
+        FloatVector m4 = FloatVector.broadcast(F, m[4]), m5 = FloatVector.broadcast(F, m[5]), m6  = FloatVector.broadcast(F, m[6]),  m7  = FloatVector.broadcast(F, m[7]);
+        FloatVector m8 = FloatVector.broadcast(F, m[8]), m9 = FloatVector.broadcast(F, m[9]), m10 = FloatVector.broadcast(F, m[10]), m11 = FloatVector.broadcast(F, m[11]);
+        int lanes = F.length();
+        for (int i = 0; i < bound; i += lanes) {
+            FloatVector a = FloatVector.fromArray(F, in, 3 * i);
+            FloatVector b = FloatVector.fromArray(F, in, 3 * i + lanes);
+            FloatVector c = FloatVector.fromArray(F, in, 3 * i + 2 * lanes);
+            FloatVector x = component(0, a, b, c), y = component(1, a, b, c), z = component(2, a, b, c);
+            FloatVector zp = x.mul(m8).add(y.mul(m9)).add(z.mul(m10)).add(m11);
+            FloatVector scale = vfov.div(zp);
+            x.mul(m0).add(y.mul(m1)).add(z.mul(m2)).add(m3).mul(scale).add(vhw).intoArray(px, i);
+            x.mul(m4).add(y.mul(m5)).add(z.mul(m6)).add(m7).mul(scale).add(vhh).intoArray(py, i);
+            zp.intoArray(pz, i);
+        }
+    }
+
+    // (float) Math.round in place, in float arithmetic only (int conversions are not compiled
+    // to vector code on every JDK): floor(v) from the round-to-even 2^23 trick, plus one when
+    // the fraction is at least a half. Both steps are exact; NaN maps to 0 and the result
+    // saturates at the int range, as Math.round does.
+    private static void round(float[] a, int bound) {
+        for (int i = 0; i < bound; i += F.length()) {
+            FloatVector v = FloatVector.fromArray(F, a, i);
+            FloatVector c = BIG.blend(BIG.neg(), v.compare(VectorOperators.LT, ZERO));
+            FloatVector t = v.add(c).sub(c).blend(v, v.abs().compare(VectorOperators.GE, BIG));
+            FloatVector floor = t.blend(t.sub(ONE), t.compare(VectorOperators.GT, v));
+            FloatVector r = floor.blend(floor.add(ONE), v.sub(floor).compare(VectorOperators.GE, HALF));
+            r.max(INT_MIN).min(INT_MAX).blend(ZERO, v.compare(VectorOperators.NE, v)).intoArray(a, i);
+        }
+    }
+
+    private static FloatVector component(int n, FloatVector a, FloatVector b, FloatVector c) {
+        VectorShuffle<Float> s = SPLIT[n];
+        return a.rearrange(s).blend(b.rearrange(s), PART[n][1]).blend(c.rearrange(s), PART[n][2]);
+    }
+
+    private static void tail(float[] m, float fov, float hw, float hh, float[] in, float[] out, int from, int count) {
+        for (int i = from, p = 3 * from, o = 4 * from; i < count; i++, p += 3, o += 4) {
+            float x = in[p], y = in[p+1], z = in[p+2];
+            float zp = m[8]*x + m[9]*y + m[10]*z + m[11];
+            if (zp <= 1f) { out[o+3] = 1; continue; }
+            float scale = fov / zp;
+            out[o]   = Math.round((m[0]*x + m[1]*y + m[2]*z + m[3])*scale + hw);
+            out[o+1] = Math.round((m[4]*x + m[5]*y + m[6]*z + m[7])*scale + hh);
+            out[o+2] = zp;
+            out[o+3] = 0;
+        }
+    }
+
+    // Each long lane holds 8 flag bytes (0 or 1); multiplying by GATHER moves flag k to bit
+    // 56 + k, so the top byte of every lane is the lane's 8 bits, which are then shifted to
+    // their place and or-ed together. (Mask.toLong would box the mask on older JDKs.)
+    @Override
+    public void nonZeroBits(byte[] a, int off, int len, long[] bits) {
+        Arrays.fill(bits, 0, (len + 63) >>> 6, 0L);
+        int lanes = B.length(), i = 0;
+        // lane counts are powers of two up to 64, so a block never straddles two longs
+        for (int bound = B.loopBound(len); i < bound; i += lanes) {
+            ByteVector v = ByteVector.fromArray(B, a, off + i);
+            LongVector flags = v.or(v.neg()).lanewise(VectorOperators.LSHR, 7).reinterpretAsLongs();
+            long nz = flags.mul(GATHER).lanewise(VectorOperators.LSHR, 56).lanewise(VectorOperators.LSHL, LANE_SHIFT)
+                           .reduceLanes(VectorOperators.OR);
+            bits[i >>> 6] |= nz << i;
+        }
+        for (; i < len; i++) {
+            int p = a[off + i];
+            bits[i >>> 6] |= (long) ((p | -p) >>> 31) << i;
+        }
+    }
+
+    @Override public String name() { return "vector/" + F.vectorBitSize(); }
+}